@@ -0,0 +1,79 @@
+package com.gotrrunetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The event stream of a craft at an altar: the craft animation, the inventory scans of the craft
+ * window and its ticks, fed straight into the core without a client
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoreBenchmark
+{
+	private static final int INVENTORY_SIZE = 28;
+	private static final int GUARDIAN_ESSENCE = 26879;
+
+	private RuneTrackerCore core;
+	private final RuneTrackerSnapshot snapshot = new RuneTrackerSnapshot();
+	private int runes = 0;
+
+	@Setup
+	public void setUp()
+	{
+		core = new RuneTrackerCore(new GOTRRuneTrackerManager(), null);
+		core.onRegionChanged(GOTRLocation.AIR_ALTAR.getRegionId());
+		scan(0);
+	}
+
+	@Benchmark
+	public boolean craft()
+	{
+		core.onLocalPlayerAnimation(RuneTrackerCore.CRAFT_ANIMATION);
+		runes += 20;
+		scan(runes);
+		core.onTick();
+		core.onTick();
+		core.onTick();
+		return core.isCraftWindowOpen();
+	}
+
+	@Benchmark
+	public boolean scanOutsideWindow()
+	{
+		scan(runes);
+		return core.isScanNeeded();
+	}
+
+	@Benchmark
+	public RuneTrackerSnapshot readSnapshot()
+	{
+		core.readSnapshot(snapshot);
+		return snapshot;
+	}
+
+	private void scan(int airRunes)
+	{
+		core.beginScan();
+		core.accumulate(RuneType.AIR.getItemId(), airRunes);
+		for (int slot = 1; slot < INVENTORY_SIZE; slot++)
+		{
+			core.accumulate(GUARDIAN_ESSENCE, 1);
+		}
+		core.endScan();
+	}
+}
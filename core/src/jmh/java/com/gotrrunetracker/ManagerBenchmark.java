@@ -0,0 +1,76 @@
+package com.gotrrunetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counter store operations run on every inventory event and panel refresh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManagerBenchmark
+{
+	private GOTRRuneTrackerManager manager;
+	private final long[] counts = new long[RuneType.COUNT];
+	private final RuneTrackerSnapshot snapshot = new RuneTrackerSnapshot();
+	private int next;
+
+	@Setup
+	public void setUp()
+	{
+		manager = new GOTRRuneTrackerManager();
+		manager.setLocation(GOTRLocation.AIR_ALTAR);
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			manager.addRunes(RuneType.fromOrdinal(i), 1000 + i);
+		}
+	}
+
+	@Benchmark
+	public boolean addRunes()
+	{
+		next = (next + 1) % RuneType.COUNT;
+		return manager.addRunes(RuneType.fromOrdinal(next), 28);
+	}
+
+	@Benchmark
+	public boolean addRunesByItemId()
+	{
+		next = (next + 1) % RuneType.COUNT;
+		return manager.addRunes(RuneType.fromOrdinal(next).getItemId(), 28);
+	}
+
+	@Benchmark
+	public long getTotalRunesCrafted()
+	{
+		return manager.getTotalRunesCrafted();
+	}
+
+	@Benchmark
+	public long[] copyRuneCounts()
+	{
+		manager.copyRuneCounts(counts);
+		return counts;
+	}
+
+	@Benchmark
+	public RuneTrackerSnapshot readSnapshot()
+	{
+		manager.readSnapshot(snapshot);
+		return snapshot;
+	}
+}
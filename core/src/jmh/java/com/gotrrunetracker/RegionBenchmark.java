@@ -0,0 +1,36 @@
+package com.gotrrunetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The region classification run once per scene load, on the first tick the player is placed
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegionBenchmark
+{
+	// Temple of the Eye, the blood altar, and Lumbridge
+	@Param({"14484", "12875", "12850"})
+	public int regionId;
+
+	@Benchmark
+	public GOTRLocation fromRegionId()
+	{
+		return GOTRLocation.fromRegionId(regionId);
+	}
+}
@@ -0,0 +1,84 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Map regions that belong to Guardians of the Rift: the Temple of the Eye and the altar behind each guardian portal.
+ */
+@Getter
+public enum GOTRLocation
+{
+	TEMPLE_OF_THE_EYE(14484, "Temple of the Eye", null),
+	AIR_ALTAR(11339, "Air Altar", RuneType.AIR),
+	MIND_ALTAR(11083, "Mind Altar", RuneType.MIND),
+	WATER_ALTAR(10827, "Water Altar", RuneType.WATER),
+	EARTH_ALTAR(10571, "Earth Altar", RuneType.EARTH),
+	FIRE_ALTAR(10315, "Fire Altar", RuneType.FIRE),
+	BODY_ALTAR(10059, "Body Altar", RuneType.BODY),
+	COSMIC_ALTAR(8523, "Cosmic Altar", RuneType.COSMIC),
+	CHAOS_ALTAR(9035, "Chaos Altar", RuneType.CHAOS),
+	NATURE_ALTAR(9547, "Nature Altar", RuneType.NATURE),
+	LAW_ALTAR(9803, "Law Altar", RuneType.LAW),
+	DEATH_ALTAR(8779, "Death Altar", RuneType.DEATH),
+	BLOOD_ALTAR(12875, "Blood Altar", RuneType.BLOOD);
+
+	private static final GOTRLocation[] VALUES = values();
+
+	public static final int COUNT = VALUES.length;
+
+	// Region ids in ascending order, with the matching location at the same index
+	private static final int[] SORTED_REGION_IDS;
+	private static final GOTRLocation[] SORTED_LOCATIONS;
+
+	static
+	{
+		GOTRLocation[] sorted = VALUES.clone();
+		Arrays.sort(sorted, (a, b) -> Integer.compare(a.regionId, b.regionId));
+
+		SORTED_REGION_IDS = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			SORTED_REGION_IDS[i] = sorted[i].regionId;
+		}
+		SORTED_LOCATIONS = sorted;
+	}
+
+	private final int regionId;
+	private final String displayName;
+
+	/**
+	 * The rune crafted at this location, or null for the Temple of the Eye
+	 */
+	private final RuneType rune;
+
+	GOTRLocation(int regionId, String displayName, RuneType rune)
+	{
+		this.regionId = regionId;
+		this.displayName = displayName;
+		this.rune = rune;
+	}
+
+	public boolean isAltar()
+	{
+		return rune != null;
+	}
+
+	/**
+	 * Get the GOTR location for a map region, or null if the region is not part of GOTR
+	 */
+	public static GOTRLocation fromRegionId(int regionId)
+	{
+		int index = Arrays.binarySearch(SORTED_REGION_IDS, regionId);
+		return index < 0 ? null : SORTED_LOCATIONS[index];
+	}
+
+	/**
+	 * Get the location at the given ordinal without cloning {@link #values()}
+	 */
+	public static GOTRLocation fromOrdinal(int ordinal)
+	{
+		return VALUES[ordinal];
+	}
+}
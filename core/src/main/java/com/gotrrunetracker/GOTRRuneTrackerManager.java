@@ -0,0 +1,293 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Session rune counts, written on the client thread.
+ * <p>
+ * Other threads read the counts through {@link #readSnapshot}, which is guarded by a {@link SequenceLock},
+ * so neither side ever blocks.
+ */
+@Slf4j
+public class GOTRRuneTrackerManager
+{
+    /**
+     * Notified of every change to the tracked data, on the thread that made it
+     */
+    public interface Listener
+    {
+        default void onRunesAdded(RuneType rune, GOTRLocation location, int count, long time)
+        {
+        }
+
+        default void onLocationChanged(GOTRLocation location, long time)
+        {
+        }
+
+        /**
+         * Called before a session with at least one rune is cleared
+         *
+         * @param runeCounts The session's rune counts, only valid for the duration of the call
+         */
+        default void onSessionCompleted(long sessionStartTime, long sessionEndTime, long[] runeCounts)
+        {
+        }
+
+        default void onReset(long sessionStartTime)
+        {
+        }
+    }
+
+    // Rune counts indexed by RuneType ordinal
+    private final long[] runeCounts = new long[RuneType.COUNT];
+
+    // Running total of all rune counts
+    @Getter
+    private long totalRunesCrafted = 0;
+
+    // Guards the counts and start time for readers on other threads
+    private final SequenceLock lock = new SequenceLock();
+
+    // Session start time
+    @Getter
+    private long sessionStartTime = 0;
+
+    // Runes crafted at each GOTR location, indexed by GOTRLocation ordinal
+    private final long[] locationCounts = new long[GOTRLocation.COUNT];
+
+    // Region tracking
+    @Getter
+    private boolean inGOTRRegion = false;
+
+    // Where the player currently is, or null if outside GOTR
+    @Getter
+    private GOTRLocation location = null;
+
+    private Listener[] listeners = new Listener[0];
+
+    public GOTRRuneTrackerManager()
+    {
+        reset();
+    }
+
+    /**
+     * Register a listener for changes to the tracked data
+     */
+    public void addListener(Listener listener)
+    {
+        Listener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Remove a previously registered listener
+     */
+    public void removeListener(Listener listener)
+    {
+        for (int i = 0; i < listeners.length; i++)
+        {
+            if (listeners[i] == listener)
+            {
+                Listener[] updated = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add runes to the tracker (only if in GOTR region)
+     *
+     * @param rune  The rune that was crafted
+     * @param count How many were crafted
+     * @return Whether the runes were tracked
+     */
+    public boolean addRunes(RuneType rune, int count)
+    {
+        if (!inGOTRRegion)
+        {
+            log.debug("Not adding runes - not in GOTR region");
+            return false;
+        }
+
+        lock.beginWrite();
+        runeCounts[rune.ordinal()] += count;
+        locationCounts[location.ordinal()] += count;
+        totalRunesCrafted += count;
+        lock.endWrite();
+
+        // Guarded, as the count would be boxed on every call even with debug logging off
+        if (log.isDebugEnabled())
+        {
+            log.debug("Added {} {}", count, rune.getDisplayName());
+        }
+
+        if (listeners.length > 0)
+        {
+            long now = System.currentTimeMillis();
+            for (Listener listener : listeners)
+            {
+                listener.onRunesAdded(rune, location, count, now);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Add runes to the tracker by item id, ignoring items that are not GOTR runes
+     */
+    public boolean addRunes(int itemId, int count)
+    {
+        RuneType rune = RuneType.fromItemId(itemId);
+        return rune != null && addRunes(rune, count);
+    }
+
+    /**
+     * Set where the player is, or null if they are outside the GOTR region
+     */
+    public void setLocation(GOTRLocation location)
+    {
+        this.location = location;
+        this.inGOTRRegion = location != null;
+        log.debug("GOTR location: {}", location);
+
+        if (listeners.length > 0)
+        {
+            long now = System.currentTimeMillis();
+            for (Listener listener : listeners)
+            {
+                listener.onLocationChanged(location, now);
+            }
+        }
+    }
+
+    /**
+     * Get the count for a specific rune type
+     */
+    public long getRuneCount(RuneType rune)
+    {
+        return runeCounts[rune.ordinal()];
+    }
+
+    /**
+     * Get the count for a rune by item id, or 0 if the item is not a GOTR rune
+     */
+    public long getRuneCount(int itemId)
+    {
+        RuneType rune = RuneType.fromItemId(itemId);
+        return rune == null ? 0 : runeCounts[rune.ordinal()];
+    }
+
+    /**
+     * Get how many runes were crafted at a GOTR location
+     */
+    public long getLocationCount(GOTRLocation location)
+    {
+        return locationCounts[location.ordinal()];
+    }
+
+    /**
+     * Reset all tracked data
+     */
+    public void reset()
+    {
+        long now = System.currentTimeMillis();
+        if (totalRunesCrafted > 0)
+        {
+            for (Listener listener : listeners)
+            {
+                listener.onSessionCompleted(sessionStartTime, now, runeCounts);
+            }
+        }
+
+        lock.beginWrite();
+        Arrays.fill(runeCounts, 0);
+        Arrays.fill(locationCounts, 0);
+        totalRunesCrafted = 0;
+        sessionStartTime = now;
+        lock.endWrite();
+        log.info("GOTR Rune Tracker data reset");
+
+        for (Listener listener : listeners)
+        {
+            listener.onReset(sessionStartTime);
+        }
+    }
+
+    /**
+     * Replace the tracked data with a previously saved session, without notifying listeners
+     *
+     * @param sessionStartTime When the saved session started
+     * @param runeCounts       Rune counts indexed by RuneType ordinal
+     * @param locationCounts   Location counts indexed by GOTRLocation ordinal
+     */
+    public void restore(long sessionStartTime, long[] runeCounts, long[] locationCounts)
+    {
+        long total = 0;
+        for (long count : runeCounts)
+        {
+            total += count;
+        }
+
+        lock.beginWrite();
+        System.arraycopy(runeCounts, 0, this.runeCounts, 0, this.runeCounts.length);
+        System.arraycopy(locationCounts, 0, this.locationCounts, 0, this.locationCounts.length);
+        this.totalRunesCrafted = total;
+        this.sessionStartTime = sessionStartTime;
+        lock.endWrite();
+        log.info("Restored GOTR session with {} runes", total);
+    }
+
+    /**
+     * Get session duration in minutes
+     */
+    public long getSessionDurationMinutes()
+    {
+        return (System.currentTimeMillis() - sessionStartTime) / (1000 * 60);
+    }
+
+    /**
+     * Copy all rune counts into the given array, indexed by RuneType ordinal
+     *
+     * @param dest An array of at least {@link RuneType#COUNT} elements
+     */
+    public void copyRuneCounts(long[] dest)
+    {
+        System.arraycopy(runeCounts, 0, dest, 0, runeCounts.length);
+    }
+
+    /**
+     * Get a number that changes whenever the tracked data changes, so views can skip redundant refreshes
+     */
+    public int getVersion()
+    {
+        return lock.getVersion();
+    }
+
+    /**
+     * Copy a consistent view of the session into the given snapshot. Safe to call from any thread.
+     */
+    public void readSnapshot(RuneTrackerSnapshot snapshot)
+    {
+        while (true)
+        {
+            int stamp = lock.beginRead();
+            System.arraycopy(runeCounts, 0, snapshot.runeCounts, 0, runeCounts.length);
+            System.arraycopy(locationCounts, 0, snapshot.locationCounts, 0, locationCounts.length);
+            snapshot.totalRunesCrafted = totalRunesCrafted;
+            snapshot.sessionStartTime = sessionStartTime;
+            if (lock.validate(stamp))
+            {
+                snapshot.version = SequenceLock.getVersion(stamp);
+                return;
+            }
+        }
+    }
+}
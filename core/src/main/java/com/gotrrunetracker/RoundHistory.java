@@ -0,0 +1,236 @@
+package com.gotrrunetracker;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The most recent GOTR rounds, kept in a fixed-size ring of primitive arrays.
+ * <p>
+ * Recording a round only overwrites the oldest slot, so it never allocates. Rounds are written on
+ * the client thread and read on other threads through {@link #readSummary}, which is guarded by a
+ * {@link SequenceLock}.
+ */
+public class RoundHistory
+{
+	public static final int CAPACITY = 50;
+
+	/**
+	 * A single recorded round, filled by {@link #readRound}. Each reader owns and reuses its own instance.
+	 */
+	@Getter
+	public static final class Round
+	{
+		private long startTime;
+		private long endTime;
+		private int elementalPoints;
+		private int catalyticPoints;
+		@Getter(AccessLevel.NONE)
+		private final long[] runeCounts = new long[RuneType.COUNT];
+
+		public long getRuneCount(RuneType rune)
+		{
+			return runeCounts[rune.ordinal()];
+		}
+	}
+
+	private final long[] startTimes = new long[CAPACITY];
+	private final long[] endTimes = new long[CAPACITY];
+	private final long[] totals = new long[CAPACITY];
+	private final int[] elementalPoints = new int[CAPACITY];
+	private final int[] catalyticPoints = new int[CAPACITY];
+
+	// CAPACITY rows of rune counts, indexed by RuneType ordinal
+	private final long[] runeCounts = new long[CAPACITY * RuneType.COUNT];
+
+	// Slot the next round is written to, and how many slots hold a round
+	private int next = 0;
+	private int size = 0;
+
+	// How many rounds were ever recorded, which is also the index the next round gets
+	private long recorded = 0;
+
+	// Guards the rounds for readers on other threads
+	private final SequenceLock lock = new SequenceLock();
+
+	/**
+	 * Record a finished round, replacing the oldest one if the history is full. Client thread only.
+	 *
+	 * @param counts Runes crafted during the round, indexed by RuneType ordinal
+	 */
+	public void add(long startTime, long endTime, long[] counts)
+	{
+		lock.beginWrite();
+		int slot = next;
+		long total = 0;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			runeCounts[slot * RuneType.COUNT + i] = counts[i];
+			total += counts[i];
+		}
+		startTimes[slot] = startTime;
+		endTimes[slot] = endTime;
+		totals[slot] = total;
+		elementalPoints[slot] = 0;
+		catalyticPoints[slot] = 0;
+
+		next = (slot + 1) % CAPACITY;
+		size = Math.min(size + 1, CAPACITY);
+		recorded++;
+		lock.endWrite();
+	}
+
+	/**
+	 * Set the points of the most recent round, which the game reports after the round ends. Client thread only.
+	 */
+	public void setLatestPoints(int elemental, int catalytic)
+	{
+		if (size == 0)
+		{
+			return;
+		}
+
+		lock.beginWrite();
+		int slot = slot(0);
+		elementalPoints[slot] = elemental;
+		catalyticPoints[slot] = catalytic;
+		lock.endWrite();
+	}
+
+	/**
+	 * Get how many rounds are recorded
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get how many rounds were ever recorded. Rounds are numbered from 0 in the order they were recorded,
+	 * and the latest {@link #CAPACITY} of them can be read by number. Safe to call from any thread.
+	 */
+	public long getRecordedCount()
+	{
+		while (true)
+		{
+			int stamp = lock.beginRead();
+			long count = recorded;
+			if (lock.validate(stamp))
+			{
+				return count;
+			}
+		}
+	}
+
+	/**
+	 * Copy one round into the given holder. Safe to call from any thread.
+	 * <p>
+	 * Rounds are read by number rather than age, so a reader walking the history while rounds are
+	 * recorded neither repeats nor skips one.
+	 *
+	 * @param index The round's number, see {@link #getRecordedCount}
+	 * @return Whether that round is still in the history
+	 */
+	public boolean readRound(long index, Round round)
+	{
+		while (true)
+		{
+			int stamp = lock.beginRead();
+			boolean exists = index >= recorded - size && index < recorded;
+			if (exists)
+			{
+				int slot = (int) (index % CAPACITY);
+				round.startTime = startTimes[slot];
+				round.endTime = endTimes[slot];
+				round.elementalPoints = elementalPoints[slot];
+				round.catalyticPoints = catalyticPoints[slot];
+				System.arraycopy(runeCounts, slot * RuneType.COUNT, round.runeCounts, 0, RuneType.COUNT);
+			}
+
+			if (lock.validate(stamp))
+			{
+				return exists;
+			}
+		}
+	}
+
+	/**
+	 * Get a number that changes whenever a round is added or updated
+	 */
+	public int getVersion()
+	{
+		return lock.getVersion();
+	}
+
+	/**
+	 * Fill the summary with the recent rounds and the best, worst and average round. Safe to call from any thread.
+	 */
+	public void readSummary(RoundSummary summary)
+	{
+		while (true)
+		{
+			int stamp = lock.beginRead();
+			fillSummary(summary);
+			if (lock.validate(stamp))
+			{
+				summary.version = SequenceLock.getVersion(stamp);
+				return;
+			}
+		}
+	}
+
+	private void fillSummary(RoundSummary summary)
+	{
+		int count = size;
+		summary.roundCount = count;
+		summary.recentCount = Math.min(count, RoundSummary.RECENT);
+
+		long sumTotal = 0;
+		long sumDuration = 0;
+		long sumPoints = 0;
+		int best = -1;
+		int worst = -1;
+		for (int age = 0; age < count; age++)
+		{
+			int slot = slot(age);
+			long total = totals[slot];
+			long duration = endTimes[slot] - startTimes[slot];
+			int points = elementalPoints[slot] + catalyticPoints[slot];
+
+			if (age < RoundSummary.RECENT)
+			{
+				summary.recentTotals[age] = total;
+				summary.recentDurations[age] = duration;
+				summary.recentPoints[age] = points;
+			}
+
+			if (best < 0 || total > totals[best])
+			{
+				best = slot;
+			}
+			if (worst < 0 || total < totals[worst])
+			{
+				worst = slot;
+			}
+
+			sumTotal += total;
+			sumDuration += duration;
+			sumPoints += points;
+		}
+
+		summary.bestTotal = best < 0 ? 0 : totals[best];
+		summary.bestDuration = best < 0 ? 0 : endTimes[best] - startTimes[best];
+		summary.worstTotal = worst < 0 ? 0 : totals[worst];
+		summary.worstDuration = worst < 0 ? 0 : endTimes[worst] - startTimes[worst];
+		summary.averageTotal = count == 0 ? 0 : sumTotal / count;
+		summary.averageDuration = count == 0 ? 0 : sumDuration / count;
+		summary.averagePoints = count == 0 ? 0 : (int) (sumPoints / count);
+	}
+
+	/**
+	 * Get the slot of a round, 0 being the most recent
+	 */
+	private int slot(int age)
+	{
+		return (next - 1 - age + CAPACITY) % CAPACITY;
+	}
+}
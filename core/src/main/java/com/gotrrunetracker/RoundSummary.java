@@ -0,0 +1,54 @@
+package com.gotrrunetracker;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The recent rounds and round statistics, filled by {@link RoundHistory#readSummary}.
+ * <p>
+ * Each reader owns and reuses its own instance, so reading the history never allocates.
+ * Durations are in milliseconds, points are elemental plus catalytic energy.
+ */
+@Getter
+public class RoundSummary
+{
+	public static final int RECENT = 5;
+
+	int version = -1;
+	int roundCount;
+
+	// The most recent rounds, newest first
+	int recentCount;
+	@Getter(AccessLevel.NONE)
+	final long[] recentTotals = new long[RECENT];
+	@Getter(AccessLevel.NONE)
+	final long[] recentDurations = new long[RECENT];
+	@Getter(AccessLevel.NONE)
+	final int[] recentPoints = new int[RECENT];
+
+	long bestTotal;
+	long bestDuration;
+	long worstTotal;
+	long worstDuration;
+	long averageTotal;
+	long averageDuration;
+	int averagePoints;
+
+	/**
+	 * Get the runes crafted in a recent round, 0 being the most recent
+	 */
+	public long getRecentTotal(int age)
+	{
+		return recentTotals[age];
+	}
+
+	public long getRecentDuration(int age)
+	{
+		return recentDurations[age];
+	}
+
+	public int getRecentPoints(int age)
+	{
+		return recentPoints[age];
+	}
+}
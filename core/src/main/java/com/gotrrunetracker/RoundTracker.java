@@ -0,0 +1,116 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the session into GOTR rounds using the game's chat messages.
+ * <p>
+ * A round starts when the rift becomes active and ends when the Great Guardian closes the rift or is
+ * defeated. Runes added while a round is running are counted towards it, and finished rounds are
+ * recorded in a {@link RoundHistory}. Updated on the client thread.
+ */
+@Slf4j
+public class RoundTracker implements GOTRRuneTrackerManager.Listener
+{
+	static final String ROUND_START_MESSAGE = "The rift becomes active!";
+	static final String ROUND_WON_MESSAGE = "The Great Guardian successfully closed the rift!";
+	static final String ROUND_LOST_MESSAGE = "The Great Guardian was defeated!";
+	static final Pattern POINTS_PATTERN = Pattern.compile(
+		"Total elemental energy:[^>]+>([\\d,]+).*Total catalytic energy:[^>]+>([\\d,]+).");
+
+	// The points message follows the end of the round, ignore it if it comes much later
+	private static final long POINTS_TIMEOUT_MILLIS = 60_000;
+
+	@Getter
+	private final RoundHistory history = new RoundHistory();
+
+	// Round in progress
+	@Getter
+	private boolean roundActive = false;
+	private long roundStartTime;
+	private final long[] roundCounts = new long[RuneType.COUNT];
+
+	private long lastRoundEndTime = -1;
+
+	@Override
+	public void onRunesAdded(RuneType rune, GOTRLocation location, int count, long time)
+	{
+		if (roundActive)
+		{
+			roundCounts[rune.ordinal()] += count;
+		}
+	}
+
+	/**
+	 * Handle a game message
+	 *
+	 * @return Whether the message started a new round
+	 */
+	public boolean onGameMessage(String message, long time)
+	{
+		if (message.contains(ROUND_START_MESSAGE))
+		{
+			if (roundActive)
+			{
+				log.debug("GOTR round started before the previous one ended, discarding it");
+			}
+
+			roundActive = true;
+			roundStartTime = time;
+			Arrays.fill(roundCounts, 0);
+			return true;
+		}
+
+		if (message.contains(ROUND_WON_MESSAGE) || message.contains(ROUND_LOST_MESSAGE))
+		{
+			// Rounds already running when tracking started are not recorded
+			if (roundActive)
+			{
+				history.add(roundStartTime, time, roundCounts);
+				lastRoundEndTime = time;
+				roundActive = false;
+				log.debug("GOTR round ended after {}ms", time - roundStartTime);
+			}
+			return false;
+		}
+
+		if (lastRoundEndTime >= 0 && time - lastRoundEndTime <= POINTS_TIMEOUT_MILLIS
+			&& message.contains("Total elemental energy"))
+		{
+			Matcher matcher = POINTS_PATTERN.matcher(message);
+			if (matcher.find())
+			{
+				history.setLatestPoints(parsePoints(matcher.group(1)), parsePoints(matcher.group(2)));
+				lastRoundEndTime = -1;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Drop the round in progress, such as when the player leaves GOTR or logs out
+	 */
+	public void abandonRound()
+	{
+		roundActive = false;
+		lastRoundEndTime = -1;
+	}
+
+	private static int parsePoints(String points)
+	{
+		try
+		{
+			return Integer.parseInt(points.replace(",", ""));
+		}
+		catch (NumberFormatException e)
+		{
+			return 0;
+		}
+	}
+}
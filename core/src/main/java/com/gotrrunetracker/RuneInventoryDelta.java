@@ -0,0 +1,106 @@
+package com.gotrrunetracker;
+
+/**
+ * Detects runes gained between two scans of the inventory.
+ * <p>
+ * Rune quantities are accumulated into one of two preallocated arrays, which are swapped once the
+ * scan finishes, so no scan or diff allocates.
+ */
+public class RuneInventoryDelta
+{
+	/**
+	 * Receives the runes gained since the previous scan
+	 */
+	public interface GainListener
+	{
+		void onRuneGained(RuneType rune, int count);
+	}
+
+	// Rune quantities indexed by RuneType ordinal
+	private int[] previous = new int[RuneType.COUNT];
+	private int[] current = new int[RuneType.COUNT];
+
+	private boolean scanning = false;
+
+	/**
+	 * Start a new scan of the inventory
+	 */
+	public void beginScan()
+	{
+		int[] counts = current;
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = 0;
+		}
+
+		scanning = true;
+	}
+
+	/**
+	 * Add an inventory slot to the current scan, ignoring items that are not GOTR runes
+	 */
+	public void accumulate(int itemId, int quantity)
+	{
+		RuneType rune = RuneType.fromItemId(itemId);
+		if (rune != null)
+		{
+			current[rune.ordinal()] += quantity;
+		}
+	}
+
+	/**
+	 * Finish the current scan, reporting every rune whose quantity increased since the previous scan
+	 *
+	 * @param listener Receives the gains, or null to only record the scan as the new baseline
+	 */
+	public void endScan(GainListener listener)
+	{
+		if (!scanning)
+		{
+			return;
+		}
+
+		scanning = false;
+
+		int[] before = previous;
+		int[] after = current;
+
+		if (listener != null)
+		{
+			for (int i = 0; i < after.length; i++)
+			{
+				int gained = after[i] - before[i];
+				if (gained > 0)
+				{
+					listener.onRuneGained(RuneType.fromOrdinal(i), gained);
+				}
+			}
+		}
+
+		// The current scan becomes the baseline for the next one
+		previous = after;
+		current = before;
+	}
+
+	/**
+	 * Get the quantity of a rune seen by the last completed scan
+	 */
+	public int getQuantity(RuneType rune)
+	{
+		return previous[rune.ordinal()];
+	}
+
+	/**
+	 * Forget the last scan
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < previous.length; i++)
+		{
+			previous[i] = 0;
+			current[i] = 0;
+		}
+
+		scanning = false;
+	}
+}
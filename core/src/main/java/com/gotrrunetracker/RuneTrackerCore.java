@@ -0,0 +1,162 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+
+/**
+ * The client independent part of the tracker: game events go in, the session comes out as snapshots.
+ * <p>
+ * Rune gains are only counted for a few ticks after a craft animation at an altar. The adapter reads
+ * the inventory itself and feeds each scan through {@link #beginScan}, {@link #accumulate} and
+ * {@link #endScan}, and can skip reading it whenever {@link #isScanNeeded()} is false. Events must
+ * come from a single thread; {@link #readSnapshot} is safe to call from any thread.
+ */
+public class RuneTrackerCore
+{
+	/**
+	 * The player's animation while crafting runes at an altar
+	 */
+	public static final int CRAFT_ANIMATION = 791;
+
+	// Ticks after a craft animation in which rune gains are counted, the runes may arrive a tick late
+	static final int CRAFT_WINDOW_TICKS = 3;
+
+	@Getter
+	private final GOTRRuneTrackerManager manager;
+	private final RuneInventoryDelta delta = new RuneInventoryDelta();
+	private final RuneInventoryDelta.GainListener countGain;
+
+	/**
+	 * The GOTR location the player is at, or null if outside GOTR
+	 */
+	@Getter
+	private GOTRLocation location = null;
+
+	private boolean baselineTaken = false;
+	private int craftTicks = 0;
+
+	/**
+	 * @param gainListener Also told about every counted gain, or null
+	 */
+	public RuneTrackerCore(GOTRRuneTrackerManager manager, RuneInventoryDelta.GainListener gainListener)
+	{
+		this.manager = manager;
+		this.countGain = (rune, count) ->
+		{
+			manager.addRunes(rune, count);
+			if (gainListener != null)
+			{
+				gainListener.onRuneGained(rune, count);
+			}
+		};
+	}
+
+	/**
+	 * Handle the player being placed in a map region
+	 *
+	 * @return Whether the player's GOTR location changed
+	 */
+	public boolean onRegionChanged(int regionId)
+	{
+		GOTRLocation next = GOTRLocation.fromRegionId(regionId);
+		if (next == location)
+		{
+			return false;
+		}
+
+		location = next;
+		manager.setLocation(next);
+
+		if (isAtAltar())
+		{
+			// Changes made away from an altar were not diffed, so the next scan starts from the current runes
+			baselineTaken = false;
+		}
+		return true;
+	}
+
+	/**
+	 * Handle an animation played by the local player
+	 */
+	public void onLocalPlayerAnimation(int animationId)
+	{
+		if (animationId == CRAFT_ANIMATION && isAtAltar())
+		{
+			craftTicks = CRAFT_WINDOW_TICKS;
+		}
+	}
+
+	/**
+	 * Advance one game tick, after the tick's scan
+	 */
+	public void onTick()
+	{
+		if (craftTicks > 0)
+		{
+			craftTicks--;
+		}
+	}
+
+	/**
+	 * Get whether a scan would be used, either to count gains or to keep the baseline current at an altar
+	 */
+	public boolean isScanNeeded()
+	{
+		return !baselineTaken || craftTicks > 0 || isAtAltar();
+	}
+
+	/**
+	 * Get whether rune gains are currently counted
+	 */
+	public boolean isCraftWindowOpen()
+	{
+		return craftTicks > 0;
+	}
+
+	/**
+	 * Start a scan of the inventory and rune pouch
+	 */
+	public void beginScan()
+	{
+		delta.beginScan();
+	}
+
+	/**
+	 * Add an item stack to the current scan
+	 */
+	public void accumulate(int itemId, int quantity)
+	{
+		delta.accumulate(itemId, quantity);
+	}
+
+	/**
+	 * Finish the current scan, counting the runes gained if a craft window is open
+	 */
+	public void endScan()
+	{
+		delta.endScan(baselineTaken && craftTicks > 0 ? countGain : null);
+		baselineTaken = true;
+	}
+
+	/**
+	 * Forget the scanned inventory and any open craft window, such as on logout
+	 */
+	public void clear()
+	{
+		delta.clear();
+		baselineTaken = false;
+		craftTicks = 0;
+	}
+
+	/**
+	 * Copy the current session into the given snapshot
+	 */
+	public void readSnapshot(RuneTrackerSnapshot snapshot)
+	{
+		manager.readSnapshot(snapshot);
+	}
+
+	private boolean isAtAltar()
+	{
+		return location != null && location.isAltar();
+	}
+}
@@ -0,0 +1,51 @@
+package com.gotrrunetracker;
+
+/**
+ * A consistent copy of the manager's session data, filled by {@link GOTRRuneTrackerManager#readSnapshot}.
+ * <p>
+ * Each reader owns and reuses its own instance, so taking a snapshot never allocates.
+ */
+public class RuneTrackerSnapshot
+{
+	final long[] runeCounts = new long[RuneType.COUNT];
+	final long[] locationCounts = new long[GOTRLocation.COUNT];
+	long totalRunesCrafted;
+	long sessionStartTime;
+	int version = -1;
+
+	public long getRuneCount(RuneType rune)
+	{
+		return runeCounts[rune.ordinal()];
+	}
+
+	public long getLocationCount(GOTRLocation location)
+	{
+		return locationCounts[location.ordinal()];
+	}
+
+	public long getTotalRunesCrafted()
+	{
+		return totalRunesCrafted;
+	}
+
+	public long getSessionStartTime()
+	{
+		return sessionStartTime;
+	}
+
+	/**
+	 * The manager version this snapshot was taken at
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Copy the rune counts into the given array, indexed by RuneType ordinal
+	 */
+	public void copyRuneCounts(long[] dest)
+	{
+		System.arraycopy(runeCounts, 0, dest, 0, runeCounts.length);
+	}
+}
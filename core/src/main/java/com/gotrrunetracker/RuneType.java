@@ -0,0 +1,85 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+
+/**
+ * The twelve runes that can be crafted at Guardians of the Rift, in the order they are displayed.
+ */
+@Getter
+public enum RuneType
+{
+	AIR(556, "Air Runes", "air_rune.png"),
+	MIND(558, "Mind Runes", "mind_rune.png"),
+	WATER(555, "Water Runes", "water_rune.png"),
+	EARTH(557, "Earth Runes", "earth_rune.png"),
+	FIRE(554, "Fire Runes", "fire_rune.png"),
+	BODY(559, "Body Runes", "body_rune.png"),
+	COSMIC(564, "Cosmic Runes", "cosmic_rune.png"),
+	CHAOS(562, "Chaos Runes", "chaos_rune.png"),
+	NATURE(561, "Nature Runes", "nature_rune.png"),
+	LAW(563, "Law Runes", "law_rune.png"),
+	DEATH(560, "Death Runes", "death_rune.png"),
+	BLOOD(565, "Blood Runes", "blood_rune.png");
+
+	/**
+	 * Cached copy of {@link #values()} so callers can iterate without cloning the array
+	 */
+	private static final RuneType[] VALUES = values();
+
+	public static final int COUNT = VALUES.length;
+
+	// Dense item id -> rune lookup, offset by the lowest rune item id
+	private static final int MIN_ITEM_ID;
+	private static final RuneType[] BY_ITEM_ID;
+
+	static
+	{
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (RuneType rune : VALUES)
+		{
+			min = Math.min(min, rune.itemId);
+			max = Math.max(max, rune.itemId);
+		}
+
+		MIN_ITEM_ID = min;
+		BY_ITEM_ID = new RuneType[max - min + 1];
+		for (RuneType rune : VALUES)
+		{
+			BY_ITEM_ID[rune.itemId - min] = rune;
+		}
+	}
+
+	private final int itemId;
+	private final String displayName;
+	private final String iconFile;
+
+	RuneType(int itemId, String displayName, String iconFile)
+	{
+		this.itemId = itemId;
+		this.displayName = displayName;
+		this.iconFile = iconFile;
+	}
+
+	/**
+	 * Get the rune for an item id, or null if the item is not a GOTR rune
+	 */
+	public static RuneType fromItemId(int itemId)
+	{
+		int index = itemId - MIN_ITEM_ID;
+		if (index < 0 || index >= BY_ITEM_ID.length)
+		{
+			return null;
+		}
+
+		return BY_ITEM_ID[index];
+	}
+
+	/**
+	 * Get the rune at the given ordinal without cloning {@link #values()}
+	 */
+	public static RuneType fromOrdinal(int ordinal)
+	{
+		return VALUES[ordinal];
+	}
+}
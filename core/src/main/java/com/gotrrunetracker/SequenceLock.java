@@ -0,0 +1,86 @@
+package com.gotrrunetracker;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A sequence lock for data written by one thread and read by any number of others without blocking.
+ * <p>
+ * The writer makes the sequence odd while it changes the data. A reader takes the sequence with
+ * {@link #beginRead}, copies what it needs, and keeps the copy only if {@link #validate} shows no
+ * write happened meanwhile, retrying otherwise:
+ * <pre>
+ * while (true)
+ * {
+ *     int stamp = lock.beginRead();
+ *     long copy = value;
+ *     if (lock.validate(stamp))
+ *     {
+ *         return copy;
+ *     }
+ * }
+ * </pre>
+ * A read may see a write half done, so it must only copy, never act on what it read before validating.
+ */
+public final class SequenceLock
+{
+	private volatile int sequence = 0;
+
+	/**
+	 * Start changing the data. Writer thread only.
+	 */
+	public void beginWrite()
+	{
+		sequence++;
+
+		// Keep the data writes that follow from being reordered before the sequence becomes odd
+		VarHandle.storeStoreFence();
+	}
+
+	/**
+	 * Finish changing the data, making it available to readers. Writer thread only.
+	 */
+	public void endWrite()
+	{
+		sequence++;
+	}
+
+	/**
+	 * Wait for any write in progress to finish, then return the stamp to validate the reads against
+	 */
+	public int beginRead()
+	{
+		int stamp = sequence;
+		while ((stamp & 1) != 0)
+		{
+			Thread.onSpinWait();
+			stamp = sequence;
+		}
+		return stamp;
+	}
+
+	/**
+	 * Get whether the data read since {@link #beginRead} returned the stamp was left untouched
+	 */
+	public boolean validate(int stamp)
+	{
+		// Keep the reads before this from being reordered after the second sequence read
+		VarHandle.loadLoadFence();
+		return sequence == stamp;
+	}
+
+	/**
+	 * Get a number that changes with every write
+	 */
+	public int getVersion()
+	{
+		return sequence >>> 1;
+	}
+
+	/**
+	 * Get the version of the data a validated read saw
+	 */
+	public static int getVersion(int stamp)
+	{
+		return stamp >>> 1;
+	}
+}
@@ -0,0 +1,91 @@
+package com.gotrrunetracker;
+
+import net.runelite.api.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The inventory scan and diff performed once at the end of a tick in which the inventory changed, over a
+ * full 28 slot GOTR inventory
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InventoryDeltaBenchmark
+{
+	private static final int GUARDIAN_ESSENCE = 26879;
+	private static final int GUARDIAN_FRAGMENTS = 26878;
+	private static final int COLOSSAL_POUCH = 26784;
+
+	private final RuneInventoryDelta delta = new RuneInventoryDelta();
+
+	// Alternates between a full essence inventory and the same inventory after a craft
+	private Item[] beforeCraft;
+	private Item[] afterCraft;
+	private boolean crafted;
+
+	private Blackhole blackhole;
+	private final RuneInventoryDelta.GainListener listener = (rune, count) -> blackhole.consume(count);
+
+	@Setup
+	public void setUp(Blackhole blackhole)
+	{
+		this.blackhole = blackhole;
+
+		beforeCraft = new Item[28];
+		afterCraft = new Item[28];
+		beforeCraft[0] = afterCraft[0] = new Item(COLOSSAL_POUCH, 1);
+		beforeCraft[1] = afterCraft[1] = new Item(GUARDIAN_FRAGMENTS, 180);
+		beforeCraft[2] = new Item(RuneType.AIR.getItemId(), 120);
+		afterCraft[2] = new Item(RuneType.AIR.getItemId(), 145);
+		beforeCraft[3] = afterCraft[3] = new Item(RuneType.FIRE.getItemId(), 60);
+		afterCraft[4] = new Item(RuneType.NATURE.getItemId(), 25);
+		for (int i = 5; i < 28; i++)
+		{
+			beforeCraft[i] = new Item(GUARDIAN_ESSENCE, 1);
+		}
+
+		scan(beforeCraft, null);
+	}
+
+	@Benchmark
+	public void scanAndDiff()
+	{
+		crafted = !crafted;
+		scan(crafted ? afterCraft : beforeCraft, listener);
+	}
+
+	@Benchmark
+	public void scanUnchanged()
+	{
+		scan(beforeCraft, listener);
+	}
+
+	// Mirrors the inventory half of GOTRRuneTrackerPlugin.scanRuneContainers, without the core's craft window
+	private void scan(Item[] items, RuneInventoryDelta.GainListener gainListener)
+	{
+		delta.beginScan();
+		for (Item item : items)
+		{
+			if (item != null)
+			{
+				delta.accumulate(item.getId(), item.getQuantity());
+			}
+		}
+		delta.endScan(gainListener);
+	}
+}
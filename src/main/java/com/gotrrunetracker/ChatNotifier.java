@@ -0,0 +1,178 @@
+package com.gotrrunetracker;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+
+/**
+ * Queues the plugin's chat messages and sends them at most once per game tick.
+ * <p>
+ * Rune gains are summed while runes keep arriving, then sent as a single digest line once a tick
+ * passes without any, so a craft that empties several pouches is one message. Other messages are
+ * grouped by category, where a newer message replaces one still waiting, and each category is rate
+ * limited to one line per interval. Used from the client thread.
+ */
+public class ChatNotifier
+{
+	public enum Category
+	{
+		LOAD(0),
+		REGION(5),
+		RESET(5),
+		GAINS(3);
+
+		// Minimum number of ticks between two lines of this category
+		private final int minTicks;
+
+		Category(int minTicks)
+		{
+			this.minTicks = minTicks;
+		}
+	}
+
+	private static final Category[] CATEGORIES = Category.values();
+
+	// Longest a digest waits for more gains before it is sent anyway
+	static final int MAX_GAIN_HOLD_TICKS = 5;
+
+	private final String[] pending = new String[CATEGORIES.length];
+	private final long[] lastSentTick = new long[CATEGORIES.length];
+
+	// Gains waiting to be reported, indexed by RuneType ordinal
+	private final long[] gains = new long[RuneType.COUNT];
+	private boolean gainsPending = false;
+	private long firstGainTick;
+	private long lastGainTick;
+
+	private final StringBuilder digest = new StringBuilder();
+	private long tick = 0;
+
+	public ChatNotifier()
+	{
+		clear();
+	}
+
+	/**
+	 * Queue a message, replacing any message of the same category that has not been sent yet
+	 */
+	public void post(Category category, String message)
+	{
+		pending[category.ordinal()] = message;
+	}
+
+	/**
+	 * Add runes to the next gains digest
+	 */
+	public void addGain(RuneType rune, int count)
+	{
+		if (!gainsPending)
+		{
+			gainsPending = true;
+			firstGainTick = tick;
+		}
+
+		gains[rune.ordinal()] += count;
+		lastGainTick = tick;
+	}
+
+	/**
+	 * Send the messages that are due. Call once per game tick.
+	 */
+	public void flush(Client client)
+	{
+		for (Category category : CATEGORIES)
+		{
+			int index = category.ordinal();
+			if (tick - lastSentTick[index] < category.minTicks)
+			{
+				continue;
+			}
+
+			String message;
+			if (category == Category.GAINS)
+			{
+				// Wait for a quiet tick so one craft is one line
+				if (!gainsPending || (lastGainTick == tick && tick - firstGainTick < MAX_GAIN_HOLD_TICKS))
+				{
+					continue;
+				}
+				message = buildDigest();
+			}
+			else
+			{
+				message = pending[index];
+				if (message == null)
+				{
+					continue;
+				}
+				pending[index] = null;
+			}
+
+			client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", message, null);
+			lastSentTick[index] = tick;
+		}
+
+		tick++;
+	}
+
+	/**
+	 * Get whether there is nothing left to send
+	 */
+	public boolean isEmpty()
+	{
+		if (gainsPending)
+		{
+			return false;
+		}
+
+		for (String message : pending)
+		{
+			if (message != null)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drop every queued message
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < pending.length; i++)
+		{
+			pending[i] = null;
+			lastSentTick[i] = Long.MIN_VALUE / 2;
+		}
+
+		for (int i = 0; i < gains.length; i++)
+		{
+			gains[i] = 0;
+		}
+		gainsPending = false;
+	}
+
+	private String buildDigest()
+	{
+		digest.setLength(0);
+		long total = 0;
+		for (int i = 0; i < gains.length; i++)
+		{
+			if (gains[i] == 0)
+			{
+				continue;
+			}
+
+			if (digest.length() > 0)
+			{
+				digest.append(", ");
+			}
+			digest.append('+').append(gains[i]).append(' ').append(RuneType.fromOrdinal(i).getDisplayName());
+			total += gains[i];
+			gains[i] = 0;
+		}
+		gainsPending = false;
+
+		return digest.append(" tracked (").append(total).append(" runes)").toString();
+	}
+}
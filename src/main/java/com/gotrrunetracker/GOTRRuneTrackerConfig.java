@@ -3,6 +3,7 @@ package com.gotrrunetracker;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
 
 @ConfigGroup("gotrrunetracker")
 public interface GOTRRuneTrackerConfig extends Config
@@ -60,7 +61,7 @@ public interface GOTRRuneTrackerConfig extends Config
 	@ConfigItem(
 			keyName = "resetOnNewSession",
 			name = "Reset on new session",
-			description = "Reset rune counts when starting a new GOTR session"
+			description = "Reset rune counts when a new GOTR round starts"
 	)
 	default boolean resetOnNewSession()
 	{
@@ -76,4 +77,28 @@ public interface GOTRRuneTrackerConfig extends Config
 	{
 		return false;
 	}
-}
\ No newline at end of file
+
+	@ConfigItem(
+			keyName = "rateWindowMinutes",
+			name = "Rate window (minutes)",
+			description = "How many minutes spent in GOTR the runes per hour rate is averaged over, changing it restarts the rate"
+	)
+	@Range(
+			min = 1,
+			max = RuneRateTracker.MAX_WINDOW_MINUTES
+	)
+	default int rateWindowMinutes()
+	{
+		return 10;
+	}
+
+	@ConfigItem(
+			keyName = "showOverlay",
+			name = "Show overlay",
+			description = "Show the session total, rune rate and most crafted runes in game while in GOTR"
+	)
+	default boolean showOverlay()
+	{
+		return false;
+	}
+}
@@ -0,0 +1,193 @@
+package com.gotrrunetracker;
+
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.ComponentConstants;
+import net.runelite.client.util.QuantityFormatter;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * In-game overlay with the session total, the rune rate and the most crafted runes.
+ * <p>
+ * The overlay is drawn into a cached image that is only redrawn when the counts, the rate or the
+ * icons change, so most frames just copy the image to the screen.
+ */
+public class GOTRRuneTrackerOverlay extends Overlay
+{
+	private static final int WIDTH = ComponentConstants.STANDARD_WIDTH;
+	private static final int PADDING = 4;
+	private static final int ICON_SIZE = 16;
+	private static final int TOP_RUNES = 3;
+
+	private final GOTRRuneTrackerPlugin plugin;
+	private final GOTRRuneTrackerManager manager;
+	private final RuneRateTracker rateTracker;
+	private final RuneSpriteCache spriteCache;
+
+	// Cached rendering, and the state it was drawn from
+	private BufferedImage image;
+	private final Dimension size = new Dimension();
+	private int renderedVersion = -1;
+	private long renderedRateStamp = -1;
+	private boolean renderedSprites = false;
+
+	// Scratch space for picking the top runes
+	private final long[] counts = new long[RuneType.COUNT];
+	private final int[] topRunes = new int[TOP_RUNES];
+
+	public GOTRRuneTrackerOverlay(GOTRRuneTrackerPlugin plugin, GOTRRuneTrackerManager manager,
+		RuneRateTracker rateTracker, RuneSpriteCache spriteCache)
+	{
+		this.plugin = plugin;
+		this.manager = manager;
+		this.rateTracker = rateTracker;
+		this.spriteCache = spriteCache;
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!plugin.isInGOTRRegion())
+		{
+			return null;
+		}
+
+		int version = manager.getVersion();
+		long rateStamp = rateTracker == null ? -1 : rateTracker.getRefreshStamp(System.currentTimeMillis());
+		boolean sprites = spriteCache.isLoaded();
+		if (image == null || version != renderedVersion || rateStamp != renderedRateStamp || sprites != renderedSprites)
+		{
+			redraw(graphics.getFont());
+			renderedVersion = version;
+			renderedRateStamp = rateStamp;
+			renderedSprites = sprites;
+		}
+
+		graphics.drawImage(image, 0, 0, null);
+		return size;
+	}
+
+	private void redraw(Font baseFont)
+	{
+		manager.copyRuneCounts(counts);
+		int top = findTopRunes();
+
+		Font font = FontManager.getRunescapeSmallFont();
+		if (font == null)
+		{
+			font = baseFont;
+		}
+
+		// Title, total and rate, then one row per top rune
+		int lineHeight = Math.max(ICON_SIZE, 16);
+		int height = PADDING * 2 + lineHeight * (3 + top);
+		if (image == null || image.getHeight() != height)
+		{
+			image = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+			size.setSize(WIDTH, height);
+		}
+
+		Graphics2D g = image.createGraphics();
+		try
+		{
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, WIDTH, height);
+			g.setComposite(AlphaComposite.SrcOver);
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+			g.setColor(ComponentConstants.STANDARD_BACKGROUND_COLOR);
+			g.fillRect(0, 0, WIDTH, height);
+
+			g.setFont(font);
+			FontMetrics metrics = g.getFontMetrics();
+			int baseline = PADDING + (lineHeight + metrics.getAscent() - metrics.getDescent()) / 2;
+
+			String title = "GOTR Runes";
+			drawText(g, title, (WIDTH - metrics.stringWidth(title)) / 2, baseline, Color.ORANGE);
+			baseline += lineHeight;
+
+			drawRow(g, metrics, "Total:", QuantityFormatter.formatNumber(manager.getTotalRunesCrafted()), PADDING, baseline);
+			baseline += lineHeight;
+
+			long rate = rateTracker == null ? 0 : Math.round(rateTracker.getTotalWindowRate(System.currentTimeMillis()));
+			drawRow(g, metrics, "Per hour:", QuantityFormatter.formatNumber(rate), PADDING, baseline);
+			baseline += lineHeight;
+
+			for (int i = 0; i < top; i++)
+			{
+				RuneType rune = RuneType.fromOrdinal(topRunes[i]);
+				int rowTop = baseline - (lineHeight + metrics.getAscent() - metrics.getDescent()) / 2;
+				BufferedImage sprite = spriteCache.getSprite(rune);
+				if (sprite != null)
+				{
+					g.drawImage(sprite, PADDING, rowTop + (lineHeight - ICON_SIZE) / 2, ICON_SIZE, ICON_SIZE, null);
+				}
+
+				drawRow(g, metrics, sprite != null ? "" : rune.getDisplayName(),
+					QuantityFormatter.formatNumber(counts[topRunes[i]]), PADDING + ICON_SIZE + PADDING, baseline);
+				baseline += lineHeight;
+			}
+		}
+		finally
+		{
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Fill topRunes with the most crafted runes, highest first
+	 *
+	 * @return How many runes have a count above zero, at most TOP_RUNES
+	 */
+	private int findTopRunes()
+	{
+		int found = 0;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			if (counts[i] <= 0)
+			{
+				continue;
+			}
+
+			// Insertion into the short sorted list
+			int position = Math.min(found, TOP_RUNES - 1);
+			if (found == TOP_RUNES && counts[i] <= counts[topRunes[position]])
+			{
+				continue;
+			}
+			while (position > 0 && counts[topRunes[position - 1]] < counts[i])
+			{
+				topRunes[position] = topRunes[position - 1];
+				position--;
+			}
+			topRunes[position] = i;
+			found = Math.min(found + 1, TOP_RUNES);
+		}
+		return found;
+	}
+
+	private static void drawRow(Graphics2D g, FontMetrics metrics, String left, String right, int x, int baseline)
+	{
+		drawText(g, left, x, baseline, Color.WHITE);
+		drawText(g, right, WIDTH - PADDING - metrics.stringWidth(right), baseline, Color.WHITE);
+	}
+
+	private static void drawText(Graphics2D g, String text, int x, int y, Color color)
+	{
+		// Shadowed like the built-in overlay components
+		g.setColor(Color.BLACK);
+		g.drawString(text, x + 1, y + 1);
+		g.setColor(color);
+		g.drawString(text, x, y);
+	}
+}
@@ -3,79 +3,145 @@ package com.gotrrunetracker;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.ui.PluginPanel;
-import net.runelite.client.util.ImageUtil;
 import net.runelite.client.util.QuantityFormatter;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public class GOTRRuneTrackerPanel extends PluginPanel
 {
+    private static final Dimension ICON_LABEL_SIZE = new Dimension(RuneSpriteCache.ICON_SIZE, RuneSpriteCache.ICON_SIZE);
+
     private final GOTRRuneTrackerManager manager;
     private final GOTRRuneTrackerPlugin plugin;
+    private final LifetimeStatsStore lifetimeStore;
+    private final ProfitTracker profitTracker;
+    private final RuneRateTracker rateTracker;
+    private final RoundHistory roundHistory;
+    private final RuneSpriteCache spriteCache;
+    private final PluginMetrics metrics;
 
     // UI Components
     private JLabel totalRunesLabel;
+    private JLabel sessionsLabel;
+    private JLabel geValueLabel;
+    private JLabel haValueLabel;
+    private JLabel runeRateLabel;
+    private JLabel valueRateLabel;
+    private JLabel roundsLabel;
+    private JLabel bestRoundLabel;
+    private JLabel worstRoundLabel;
+    private JLabel averageRoundLabel;
+    private final JLabel[] recentRoundLabels = new JLabel[RoundSummary.RECENT];
     private JPanel runeGridPanel;
-    private JButton resetButton;
-
-    // Rune icon mapping
-    private static final String[] RUNE_ORDER = {
-            "Air Runes", "Mind Runes", "Water Runes",
-            "Earth Runes", "Fire Runes", "Body Runes",
-            "Cosmic Runes", "Chaos Runes", "Nature Runes",
-            "Law Runes", "Death Runes", "Blood Runes"
-    };
-
-    private static final Map<String, String> RUNE_ICON_FILES = new HashMap<>();
-    static {
-        RUNE_ICON_FILES.put("Air Runes", "air_rune.png");
-        RUNE_ICON_FILES.put("Mind Runes", "mind_rune.png");
-        RUNE_ICON_FILES.put("Water Runes", "water_rune.png");
-        RUNE_ICON_FILES.put("Earth Runes", "earth_rune.png");
-        RUNE_ICON_FILES.put("Fire Runes", "fire_rune.png");
-        RUNE_ICON_FILES.put("Body Runes", "body_rune.png");
-        RUNE_ICON_FILES.put("Cosmic Runes", "cosmic_rune.png");
-        RUNE_ICON_FILES.put("Chaos Runes", "chaos_rune.png");
-        RUNE_ICON_FILES.put("Nature Runes", "nature_rune.png");
-        RUNE_ICON_FILES.put("Law Runes", "law_rune.png");
-        RUNE_ICON_FILES.put("Death Runes", "death_rune.png");
-        RUNE_ICON_FILES.put("Blood Runes", "blood_rune.png");
-    }
+    private final JPanel[] runePanels = new JPanel[RuneType.COUNT];
+    private final JLabel[] runeIconLabels = new JLabel[RuneType.COUNT];
 
-    // Store rune panels for easy updating
-    private Map<String, JLabel> runeCountLabels = new HashMap<>();
+    private JButton resetButton;
+    private JButton exportButton;
+
+    // Store rune count labels for easy updating, indexed by RuneType ordinal
+    private final JLabel[] runeCountLabels = new JLabel[RuneType.COUNT];
+
+    // Values currently shown by the labels, so unchanged cells can be skipped (EDT only)
+    private final long[] viewCounts = new long[RuneType.COUNT];
+    private final long[] displayedCounts = new long[RuneType.COUNT];
+    private long displayedTotal = 0;
+    private int displayedSessions = -1;
+    private long displayedGeValue = 0;
+    private long displayedHaValue = 0;
+    private long displayedRuneRate = -1;
+    private long displayedValueRate = -1;
+    private final long[] displayedRuneRates = new long[RuneType.COUNT];
+    private final RoundSummary roundSummary = new RoundSummary();
+
+    // Whether the lifetime view is shown instead of the current session (EDT only)
+    private boolean showLifetime = false;
+
+    // Versions last drawn by the EDT, and whether a refresh is already waiting to run
+    private volatile int renderedVersion = -1;
+    private volatile int renderedLifetimeVersion = -1;
+    private volatile int renderedProfitVersion = -1;
+    private volatile long renderedRateStamp = -1;
+    private volatile int renderedRoundVersion = -1;
+    private final RuneTrackerSnapshot snapshot = new RuneTrackerSnapshot();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final Runnable refreshTask = this::refresh;
+
+    // Whether the components have been built, which only happens once the panel is first opened
+    private volatile boolean built = false;
 
     public GOTRRuneTrackerPanel(GOTRRuneTrackerManager manager)
     {
         this.manager = manager;
         this.plugin = null; // We'll need to pass this in later
+        this.lifetimeStore = null;
+        this.profitTracker = null;
+        this.rateTracker = null;
+        this.roundHistory = null;
+        this.spriteCache = null;
+        this.metrics = null;
 
         setBackground(ColorScheme.DARK_GRAY_COLOR);
         setLayout(new BorderLayout());
-
-        initializeComponents();
-        updateDisplay();
     }
 
-    // Constructor that accepts plugin reference
-    public GOTRRuneTrackerPanel(GOTRRuneTrackerManager manager, GOTRRuneTrackerPlugin plugin)
+    // Constructor that accepts plugin reference, the lifetime stats, profit, rate and round tracking, shared icons and timings
+    public GOTRRuneTrackerPanel(GOTRRuneTrackerManager manager, GOTRRuneTrackerPlugin plugin,
+                                LifetimeStatsStore lifetimeStore, ProfitTracker profitTracker,
+                                RuneRateTracker rateTracker, RoundHistory roundHistory,
+                                RuneSpriteCache spriteCache, PluginMetrics metrics)
     {
         this.manager = manager;
         this.plugin = plugin;
+        this.lifetimeStore = lifetimeStore;
+        this.profitTracker = profitTracker;
+        this.rateTracker = rateTracker;
+        this.roundHistory = roundHistory;
+        this.spriteCache = spriteCache;
+        this.metrics = metrics;
 
         setBackground(ColorScheme.DARK_GRAY_COLOR);
         setLayout(new BorderLayout());
+    }
+
+    @Override
+    public void onActivate()
+    {
+        super.onActivate();
+        ensureBuilt();
+    }
+
+    /**
+     * Build the components the first time the panel is shown, so enabling the plugin only costs
+     * the navigation button
+     */
+    private void ensureBuilt()
+    {
+        if (built)
+        {
+            return;
+        }
 
         initializeComponents();
-        updateDisplay();
+        built = true;
+
+        if (spriteCache != null)
+        {
+            spriteCache.whenLoaded(this::applySprites);
+        }
+
+        revalidate();
+        refresh();
     }
 
     private void initializeComponents()
@@ -95,12 +161,26 @@ public class GOTRRuneTrackerPanel extends PluginPanel
 
         mainPanel.add(Box.createVerticalStrut(10));
 
+        // Session / lifetime view selector
+        if (lifetimeStore != null)
+        {
+            mainPanel.add(createViewSelector());
+            mainPanel.add(Box.createVerticalStrut(10));
+        }
+
         // Session info panel
         JPanel sessionPanel = createInfoPanel();
         mainPanel.add(sessionPanel);
 
         mainPanel.add(Box.createVerticalStrut(10));
 
+        // Recent rounds
+        if (roundHistory != null)
+        {
+            mainPanel.add(createRoundsPanel());
+            mainPanel.add(Box.createVerticalStrut(10));
+        }
+
         // Rune grid panel
         runeGridPanel = createRuneGridPanel();
         mainPanel.add(runeGridPanel);
@@ -123,12 +203,26 @@ public class GOTRRuneTrackerPanel extends PluginPanel
         resetButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         mainPanel.add(resetButton);
 
+        // Export button
+        if (plugin != null)
+        {
+            mainPanel.add(Box.createVerticalStrut(5));
+
+            exportButton = new JButton("Export History");
+            exportButton.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+            exportButton.setForeground(Color.WHITE);
+            exportButton.setFocusPainted(false);
+            exportButton.addActionListener(e -> exportHistory());
+            exportButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+            mainPanel.add(exportButton);
+        }
+
         add(mainPanel, BorderLayout.CENTER);
     }
 
     private JPanel createInfoPanel()
     {
-        JPanel infoPanel = new JPanel(new GridLayout(4, 1, 0, 5));
+        JPanel infoPanel = new FixedSizePanel(new GridLayout(0, 1, 0, 5));
         infoPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
 
         // Total runes
@@ -136,9 +230,117 @@ public class GOTRRuneTrackerPanel extends PluginPanel
         totalRunesLabel.setForeground(Color.WHITE);
         infoPanel.add(totalRunesLabel);
 
+        // Completed sessions, only shown in the lifetime view
+        sessionsLabel = new JLabel("Sessions: 0");
+        sessionsLabel.setForeground(Color.WHITE);
+        sessionsLabel.setVisible(false);
+        infoPanel.add(sessionsLabel);
+
+        // Value of the runes
+        if (profitTracker != null)
+        {
+            geValueLabel = new JLabel("GE Value: 0 gp");
+            geValueLabel.setForeground(Color.WHITE);
+            infoPanel.add(geValueLabel);
+
+            haValueLabel = new JLabel("High Alch Value: 0 gp");
+            haValueLabel.setForeground(Color.WHITE);
+            infoPanel.add(haValueLabel);
+        }
+
+        // Session rates, over time spent in GOTR
+        if (rateTracker != null)
+        {
+            runeRateLabel = new JLabel("Runes/hr: 0");
+            runeRateLabel.setForeground(Color.WHITE);
+            infoPanel.add(runeRateLabel);
+
+            valueRateLabel = new JLabel("GE Value/hr: 0 gp");
+            valueRateLabel.setForeground(Color.WHITE);
+            infoPanel.add(valueRateLabel);
+        }
+
         return infoPanel;
     }
 
+    private JPanel createRoundsPanel()
+    {
+        JPanel roundsPanel = new FixedSizePanel(new GridLayout(0, 1, 0, 5));
+        roundsPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+
+        roundsLabel = new JLabel("Rounds: 0");
+        roundsLabel.setForeground(ColorScheme.BRAND_ORANGE);
+        roundsPanel.add(roundsLabel);
+
+        // Newest round first, each hidden until there is a round to show
+        for (int i = 0; i < recentRoundLabels.length; i++)
+        {
+            JLabel label = new JLabel();
+            label.setForeground(Color.WHITE);
+            label.setVisible(false);
+            recentRoundLabels[i] = label;
+            roundsPanel.add(label);
+        }
+
+        bestRoundLabel = new JLabel("Best: -");
+        bestRoundLabel.setForeground(Color.WHITE);
+        roundsPanel.add(bestRoundLabel);
+
+        worstRoundLabel = new JLabel("Worst: -");
+        worstRoundLabel.setForeground(Color.WHITE);
+        roundsPanel.add(worstRoundLabel);
+
+        averageRoundLabel = new JLabel("Average: -");
+        averageRoundLabel.setForeground(Color.WHITE);
+        roundsPanel.add(averageRoundLabel);
+
+        return roundsPanel;
+    }
+
+    private JPanel createViewSelector()
+    {
+        JPanel selectorPanel = new JPanel(new GridLayout(1, 2, 5, 0));
+        selectorPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+
+        JToggleButton sessionButton = createViewButton("Session", false);
+        JToggleButton lifetimeButton = createViewButton("Lifetime", true);
+        sessionButton.setSelected(true);
+
+        ButtonGroup group = new ButtonGroup();
+        group.add(sessionButton);
+        group.add(lifetimeButton);
+
+        selectorPanel.add(sessionButton);
+        selectorPanel.add(lifetimeButton);
+        return selectorPanel;
+    }
+
+    private JToggleButton createViewButton(String text, boolean lifetime)
+    {
+        JToggleButton button = new JToggleButton(text);
+        button.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.addActionListener(e -> setShowLifetime(lifetime));
+        return button;
+    }
+
+    private void setShowLifetime(boolean lifetime)
+    {
+        if (showLifetime == lifetime)
+        {
+            return;
+        }
+
+        showLifetime = lifetime;
+        sessionsLabel.setVisible(lifetime);
+        resetButton.setVisible(!lifetime);
+
+        // Force every label to be redrawn for the new view
+        renderedVersion = -1;
+        refresh();
+    }
+
     private JPanel createRuneGridPanel()
     {
         JPanel gridPanel = new JPanel(new GridLayout(4, 3, 5, 5));
@@ -146,109 +348,289 @@ public class GOTRRuneTrackerPanel extends PluginPanel
         gridPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
         // Create panels for each rune in the defined order
-        for (String runeName : RUNE_ORDER)
+        for (RuneType rune : RuneType.values())
         {
-            JPanel runePanel = createRunePanel(runeName);
+            JPanel runePanel = createRunePanel(rune);
             gridPanel.add(runePanel);
         }
 
         return gridPanel;
     }
 
-    private JPanel createRunePanel(String runeName)
+    private JPanel createRunePanel(RuneType rune)
     {
-        JPanel panel = new JPanel();
+        String runeName = rune.getDisplayName();
+        JPanel panel = new FixedSizePanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
         panel.setBorder(new EmptyBorder(8, 5, 8, 5));
         panel.setPreferredSize(new Dimension(80, 70));
 
-        // Try to load the rune icon
-        String iconFile = RUNE_ICON_FILES.get(runeName);
-        BufferedImage runeIcon = null;
-
-        try
-        {
-            runeIcon = ImageUtil.loadImageResource(getClass(), iconFile);
-        }
-        catch (Exception e)
-        {
-            log.warn("Could not load icon for {}: {}", runeName, iconFile);
-        }
-
-        // Create icon label
-        JLabel iconLabel;
-        if (runeIcon != null)
-        {
-            Image scaledIcon = runeIcon.getScaledInstance(24, 24, Image.SCALE_SMOOTH);
-            iconLabel = new JLabel(new ImageIcon(scaledIcon));
-        }
-        else
-        {
-            // if icon not found
-            String shortName = runeName.replace(" Runes", "").substring(0, 1);
-            iconLabel = new JLabel(shortName, SwingConstants.CENTER);
-            iconLabel.setForeground(Color.LIGHT_GRAY);
-            iconLabel.setFont(iconLabel.getFont().deriveFont(Font.BOLD, 16f));
-        }
+        // Show the rune's initial until its icon is ready
+        String shortName = runeName.replace(" Runes", "").substring(0, 1);
+        JLabel iconLabel = new JLabel(shortName, SwingConstants.CENTER);
+        iconLabel.setForeground(Color.LIGHT_GRAY);
+        iconLabel.setFont(iconLabel.getFont().deriveFont(Font.BOLD, 16f));
+        iconLabel.setPreferredSize(ICON_LABEL_SIZE);
+        iconLabel.setMinimumSize(ICON_LABEL_SIZE);
+        iconLabel.setMaximumSize(ICON_LABEL_SIZE);
+        runeIconLabels[rune.ordinal()] = iconLabel;
 
         iconLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         panel.add(iconLabel);
 
         // Create label
         JLabel countLabel = new JLabel("0", SwingConstants.CENTER);
-        countLabel.setForeground(Color.WHITE);
+        countLabel.setForeground(Color.GRAY);
         countLabel.setFont(countLabel.getFont().deriveFont(Font.BOLD, 12f));
         countLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        runeCountLabels.put(runeName, countLabel);
+        runeCountLabels[rune.ordinal()] = countLabel;
 
         panel.add(Box.createVerticalStrut(2));
         panel.add(countLabel);
         panel.setToolTipText(runeName);
+        runePanels[rune.ordinal()] = panel;
 
         return panel;
     }
 
     /**
-     * Update the display with current data
+     * Queue a refresh of the display if the manager's data has changed since it was last drawn.
+     * Several calls before the refresh runs are merged into a single EDT task.
      */
     public void updateDisplay()
     {
-        SwingUtilities.invokeLater(() -> {
-            // Update summary labels
-            totalRunesLabel.setText("Total Runes: " + QuantityFormatter.formatNumber(manager.getTotalRunesCrafted()));
+        long start = System.nanoTime();
+        queueRefresh();
+        if (metrics != null)
+        {
+            metrics.record(PluginMetrics.Probe.UPDATE_DISPLAY, start);
+        }
+    }
 
-            // Update rune grid
-            updateRuneGrid();
+    private void queueRefresh()
+    {
+        // Nothing to draw until the panel is first opened, which renders everything anyway
+        if (!built)
+        {
+            return;
+        }
 
-            revalidate();
-            repaint();
-        });
+        if (manager.getVersion() == renderedVersion
+            && (lifetimeStore == null || lifetimeStore.getVersion() == renderedLifetimeVersion)
+            && (profitTracker == null || profitTracker.getVersion() == renderedProfitVersion)
+            && (rateTracker == null || rateTracker.getRefreshStamp(System.currentTimeMillis()) == renderedRateStamp)
+            && (roundHistory == null || roundHistory.getVersion() == renderedRoundVersion))
+        {
+            return;
+        }
+
+        if (refreshQueued.compareAndSet(false, true))
+        {
+            SwingUtilities.invokeLater(refreshTask);
+        }
+    }
+
+    private void refresh()
+    {
+        long start = System.nanoTime();
+        render();
+        if (metrics != null)
+        {
+            metrics.record(PluginMetrics.Probe.EDT_REFRESH, start);
+        }
+    }
+
+    private void render()
+    {
+        refreshQueued.set(false);
+
+        // Read the session once, so every label shows the same consistent state
+        manager.readSnapshot(snapshot);
+        int version = snapshot.getVersion();
+        int lifetimeVersion = lifetimeStore == null ? -1 : lifetimeStore.getVersion();
+        int profitVersion = profitTracker == null ? -1 : profitTracker.getVersion();
+        long now = System.currentTimeMillis();
+        long rateStamp = rateTracker == null ? -1 : rateTracker.getRefreshStamp(now);
+
+        // Lifetime counts are the completed sessions plus the current one
+        long total = 0;
+        if (showLifetime)
+        {
+            lifetimeStore.copyTotals(viewCounts);
+            for (int i = 0; i < RuneType.COUNT; i++)
+            {
+                viewCounts[i] += snapshot.getRuneCount(RuneType.fromOrdinal(i));
+                total += viewCounts[i];
+            }
+
+            int sessions = lifetimeStore.getSessionCount();
+            if (sessions != displayedSessions)
+            {
+                sessionsLabel.setText("Sessions: " + QuantityFormatter.formatNumber(sessions));
+                displayedSessions = sessions;
+            }
+        }
+        else
+        {
+            snapshot.copyRuneCounts(viewCounts);
+            total = snapshot.getTotalRunesCrafted();
+        }
+
+        // Update summary labels
+        if (total != displayedTotal)
+        {
+            totalRunesLabel.setText("Total Runes: " + QuantityFormatter.formatNumber(total));
+            displayedTotal = total;
+        }
+
+        if (profitTracker != null)
+        {
+            updateProfit();
+        }
+
+        if (rateTracker != null)
+        {
+            updateRates(now);
+        }
+
+        if (roundHistory != null && roundHistory.getVersion() != renderedRoundVersion)
+        {
+            updateRounds();
+        }
+
+        // Update rune grid
+        updateRuneGrid(viewCounts);
+
+        renderedVersion = version;
+        renderedLifetimeVersion = lifetimeVersion;
+        renderedProfitVersion = profitVersion;
+        renderedRateStamp = rateStamp;
+    }
+
+    private void updateProfit()
+    {
+        long geValue = showLifetime ? profitTracker.getLifetimeGeValue() : profitTracker.getSessionGeValue();
+        if (geValue != displayedGeValue)
+        {
+            geValueLabel.setText("GE Value: " + QuantityFormatter.quantityToStackSize(geValue) + " gp");
+            displayedGeValue = geValue;
+        }
+
+        long haValue = showLifetime ? profitTracker.getLifetimeHaValue() : profitTracker.getSessionHaValue();
+        if (haValue != displayedHaValue)
+        {
+            haValueLabel.setText("High Alch Value: " + QuantityFormatter.quantityToStackSize(haValue) + " gp");
+            displayedHaValue = haValue;
+        }
+    }
+
+    private void updateRates(long now)
+    {
+        // Windowed rate, with the exponentially weighted rate for comparison
+        long runeRate = Math.round(rateTracker.getTotalWindowRate(now));
+        if (runeRate != displayedRuneRate)
+        {
+            runeRateLabel.setText("Runes/hr: " + QuantityFormatter.formatNumber(runeRate)
+                + " (trend " + QuantityFormatter.formatNumber(Math.round(rateTracker.getTotalEwmaRate(now))) + ")");
+            displayedRuneRate = runeRate;
+        }
+
+        long valueRate = Math.round(rateTracker.getValueWindowRate(now));
+        if (valueRate != displayedValueRate)
+        {
+            valueRateLabel.setText("GE Value/hr: " + QuantityFormatter.quantityToStackSize(valueRate) + " gp");
+            displayedValueRate = valueRate;
+        }
+
+        // Per rune rates are shown in each cell's tooltip
+        for (int i = 0; i < RuneType.COUNT; i++)
+        {
+            RuneType rune = RuneType.fromOrdinal(i);
+            long rate = Math.round(rateTracker.getWindowRate(rune, now));
+            if (rate != displayedRuneRates[i] && runePanels[i] != null)
+            {
+                runePanels[i].setToolTipText(rune.getDisplayName() + " - " + QuantityFormatter.formatNumber(rate) + "/hr");
+                displayedRuneRates[i] = rate;
+            }
+        }
+    }
+
+    private void updateRounds()
+    {
+        roundHistory.readSummary(roundSummary);
+
+        int count = roundSummary.getRoundCount();
+        roundsLabel.setText("Rounds: " + QuantityFormatter.formatNumber(count));
+
+        for (int i = 0; i < recentRoundLabels.length; i++)
+        {
+            JLabel label = recentRoundLabels[i];
+            boolean shown = i < roundSummary.getRecentCount();
+            if (shown)
+            {
+                label.setText((i == 0 ? "Last: " : "#" + (i + 1) + ": ")
+                    + QuantityFormatter.formatNumber(roundSummary.getRecentTotal(i)) + " runes, "
+                    + formatDuration(roundSummary.getRecentDuration(i)) + ", "
+                    + QuantityFormatter.formatNumber(roundSummary.getRecentPoints(i)) + " pts");
+            }
+            label.setVisible(shown);
+        }
+
+        if (count > 0)
+        {
+            bestRoundLabel.setText("Best: " + QuantityFormatter.formatNumber(roundSummary.getBestTotal())
+                + " runes in " + formatDuration(roundSummary.getBestDuration()));
+            worstRoundLabel.setText("Worst: " + QuantityFormatter.formatNumber(roundSummary.getWorstTotal())
+                + " runes in " + formatDuration(roundSummary.getWorstDuration()));
+            averageRoundLabel.setText("Average: " + QuantityFormatter.formatNumber(roundSummary.getAverageTotal())
+                + " runes, " + formatDuration(roundSummary.getAverageDuration()) + ", "
+                + QuantityFormatter.formatNumber(roundSummary.getAveragePoints()) + " pts");
+        }
+
+        renderedRoundVersion = roundSummary.getVersion();
     }
 
-    private void updateRuneGrid()
+    private static String formatDuration(long millis)
     {
-        Map<String, Integer> runeCounts = manager.getAllRuneCounts();
+        long seconds = millis / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
 
-        // Update each rune count label
-        for (String runeName : RUNE_ORDER)
+    private void updateRuneGrid(long[] counts)
+    {
+        // Update only the rune count labels whose value changed
+        for (int i = 0; i < RuneType.COUNT; i++)
         {
-            JLabel countLabel = runeCountLabels.get(runeName);
-            if (countLabel != null)
+            JLabel countLabel = runeCountLabels[i];
+            long count = counts[i];
+            if (countLabel == null || count == displayedCounts[i])
             {
-                int count = runeCounts.getOrDefault(runeName, 0);
-                countLabel.setText(QuantityFormatter.formatNumber(count));
-
-                // Change color based on whether runes have been crafted
-                if (count > 0)
-                {
-                    countLabel.setForeground(Color.WHITE);
-                }
-                else
-                {
-                    countLabel.setForeground(Color.GRAY);
-                }
+                continue;
+            }
+
+            countLabel.setText(QuantityFormatter.formatNumber(count));
+
+            // Change color based on whether runes have been crafted
+            if ((count > 0) != (displayedCounts[i] > 0))
+            {
+                countLabel.setForeground(count > 0 ? Color.WHITE : Color.GRAY);
+            }
+
+            displayedCounts[i] = count;
+        }
+    }
+
+    private void applySprites()
+    {
+        for (int i = 0; i < RuneType.COUNT; i++)
+        {
+            BufferedImage sprite = spriteCache.getSprite(RuneType.fromOrdinal(i));
+            if (sprite != null && runeIconLabels[i] != null)
+            {
+                runeIconLabels[i].setText(null);
+                runeIconLabels[i].setIcon(new ImageIcon(sprite));
             }
         }
     }
@@ -264,9 +646,69 @@ public class GOTRRuneTrackerPanel extends PluginPanel
 
         if (result == JOptionPane.YES_OPTION)
         {
-            manager.reset();
-            updateDisplay();
+            if (plugin != null)
+            {
+                plugin.resetSession();
+            }
+            else
+            {
+                manager.reset();
+                updateDisplay();
+            }
+        }
+    }
+
+    private void exportHistory()
+    {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export GOTR History");
+        chooser.setSelectedFile(new File("gotr-history.csv"));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("JSON", "json"));
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV", "csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+        {
+            return;
         }
+
+        Path file = chooser.getSelectedFile().toPath();
+        exportButton.setEnabled(false);
+        plugin.exportHistory(file).whenComplete((records, error) -> SwingUtilities.invokeLater(() ->
+        {
+            exportButton.setEnabled(true);
+            if (error != null)
+            {
+                log.warn("Unable to export GOTR history to {}", file, error);
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                JOptionPane.showMessageDialog(this, "Unable to export history: " + cause.getMessage(),
+                    "Export History", JOptionPane.ERROR_MESSAGE);
+            }
+            else
+            {
+                JOptionPane.showMessageDialog(this, "Exported " + records + " records to " + file.getFileName(),
+                    "Export History", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }));
     }
 
-}
\ No newline at end of file
+    /**
+     * A panel whose size does not depend on its contents, so text changes inside it only
+     * re-layout the panel itself instead of the whole plugin panel
+     */
+    private static class FixedSizePanel extends JPanel
+    {
+        FixedSizePanel()
+        {
+        }
+
+        FixedSizePanel(LayoutManager layout)
+        {
+            super(layout);
+        }
+
+        @Override
+        public boolean isValidateRoot()
+        {
+            return true;
+        }
+    }
+}
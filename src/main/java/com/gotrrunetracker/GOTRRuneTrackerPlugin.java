@@ -2,25 +2,39 @@ package com.gotrrunetracker;
 
 import com.google.inject.Provides;
 import javax.inject.Inject;
+import javax.swing.SwingUtilities;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.CommandExecuted;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.game.ItemManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
+import net.runelite.client.ui.overlay.OverlayManager;
 import net.runelite.client.util.ImageUtil;
 
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @PluginDescriptor(
@@ -42,67 +56,141 @@ public class GOTRRuneTrackerPlugin extends Plugin
 	@Inject
 	private ConfigManager configManager;
 
+	@Inject
+	private ClientThread clientThread;
+
+	@Inject
+	private ScheduledExecutorService executor;
+
+	@Inject
+	private ItemManager itemManager;
+
+	@Inject
+	private RuneSpriteCache spriteCache;
+
+	@Inject
+	private OverlayManager overlayManager;
+
+	// Config, copied so the event handlers do not go through the config proxy
+	private volatile TrackerSettings settings;
+
+	// Timed actions, by wall-clock deadline
+	private static final long TIMER_TICK_MILLIS = 1000;
+	private static final int TIMER_SLOTS = 64;
+	private final TimerWheel timers = new TimerWheel(TIMER_TICK_MILLIS, TIMER_SLOTS, System.currentTimeMillis());
+	private final TimerWheel.Timer autoResetTimer = new TimerWheel.Timer(this::autoReset);
+
+	// Hot path timings, shown with ::gotrperf
+	private static final String PERF_COMMAND = "gotrperf";
+	private final PluginMetrics metrics = new PluginMetrics();
+
+	// Chat messages, sent at most once per tick
+	private final ChatNotifier notifier = new ChatNotifier();
+
+	private GOTRRuneTrackerOverlay overlay;
 	private GOTRRuneTrackerPanel uiPanel;
 	private NavigationButton uiNavigationButton;
 	private GOTRRuneTrackerManager manager;
 
+	// Counting, craft detection and region classification, fed by the event handlers below
+	private RuneTrackerCore core;
+
+	// Session persistence, in a directory per account
+	static final File TRACKER_DIR = new File(RuneLite.RUNELITE_DIR, "gotr-rune-tracker");
+	private static final long NO_ACCOUNT = -1;
+	private Path trackerDirectory;
+	private long accountHash = NO_ACCOUNT;
+	private volatile SessionJournal journal;
+	private ScheduledFuture<?> journalFlushFuture;
+	private LifetimeStatsStore lifetimeStore;
+
+	// Journal being opened on the executor, attached on the client thread once it has been replayed
+	private SessionJournal pendingJournal;
+
+	// Profit tracking
+	private RunePriceCache priceCache;
+	private ProfitTracker profitTracker;
+	private RuneRateTracker rateTracker;
+	private RoundTracker roundTracker;
+	private final GOTRRuneTrackerManager.Listener lifetimeRecorder = new GOTRRuneTrackerManager.Listener()
+	{
+		@Override
+		public void onSessionCompleted(long sessionStartTime, long sessionEndTime, long[] runeCounts)
+		{
+			// The journal saves its session when it writes the reset, so flush it now instead of on the next
+			// interval. Only a session completed while the journal is still opening is saved here.
+			final SessionJournal current = journal;
+			if (current != null)
+			{
+				executor.execute(current::flush);
+				return;
+			}
+
+			final SessionJournal.SessionStore sessions = lifetimeSessions(lifetimeStore);
+			final long[] counts = runeCounts.clone();
+			executor.execute(() -> sessions.save(sessionStartTime, sessionEndTime, counts));
+		}
+	};
+
 	// GOTR region tracking
-    boolean isInGOTRRegion = false;
+	boolean isInGOTRRegion = false;
+	private boolean locationCheckPending = false;
 	private long lastTimeInGOTR = 0;
-	private int ticksOutsideGOTR = 0;
-
-	// GOTR related region IDs
-	private static final int TEMPLE_OF_EYE_REGION = 14484; // Main GOTR area
-	private static final int[] ALTAR_REGIONS = {
-			11339, // Air altar
-			12875, // Blood altar
-			10059, // Body altar
-			9035,  // Chaos altar
-			8523,  // Cosmic altar
-			8779,  // Death altar
-			10571, // Earth altar
-			10315, // Fire altar
-			9803,  // Law altar
-			11083, // Mind altar
-			9547,  // Nature altar
-			10827  // Water altar
-	};
 
-	// Rune item IDs and tracking
-	private static final Map<Integer, String> RUNE_IDS = new HashMap<>();
-	static {
-		RUNE_IDS.put(556, "Air Runes");
-		RUNE_IDS.put(565, "Blood Runes");
-		RUNE_IDS.put(559, "Body Runes");
-		RUNE_IDS.put(562, "Chaos Runes");
-		RUNE_IDS.put(564, "Cosmic Runes");
-		RUNE_IDS.put(560, "Death Runes");
-		RUNE_IDS.put(557, "Earth Runes");
-		RUNE_IDS.put(554, "Fire Runes");
-		RUNE_IDS.put(563, "Law Runes");
-		RUNE_IDS.put(558, "Mind Runes");
-		RUNE_IDS.put(561, "Nature Runes");
-		RUNE_IDS.put(555, "Water Runes");
-	}
-
-	// Store previous inventory to detect rune changes
-	private Map<Integer, Integer> previousInventory = new HashMap<>();
+	// Set while the player is outside GOTR with nothing left to do, every event handler returns at once
+	private boolean dormant = false;
+	private ScheduledFuture<?> wakeFuture;
+
+	// Whether the inventory and rune pouch have been scanned since logging in
 	private boolean inventoryInitialized = false;
 
-	// Animation tracking for runecrafting
-	private boolean isRunecrafting = false;
-	private int runecraftingTicks = 0;
+	// Set when the inventory or rune pouch changes, and reconciled once at the end of the tick
+	private boolean runeContainersDirty = false;
+
+	// The inventory from this tick's change event, so the scan does not look it up again
+	private ItemContainer changedInventory;
+
+	private static final int[] RUNE_POUCH_RUNE_VARBITS = {
+		Varbits.RUNE_POUCH_RUNE1, Varbits.RUNE_POUCH_RUNE2, Varbits.RUNE_POUCH_RUNE3, Varbits.RUNE_POUCH_RUNE4
+	};
+	private static final int[] RUNE_POUCH_AMOUNT_VARBITS = {
+		Varbits.RUNE_POUCH_AMOUNT1, Varbits.RUNE_POUCH_AMOUNT2, Varbits.RUNE_POUCH_AMOUNT3, Varbits.RUNE_POUCH_AMOUNT4
+	};
+
+	public GOTRRuneTrackerPlugin()
+	{
+	}
+
+	/**
+	 * Create the plugin with the given client services rather than injected ones, so it can be driven
+	 * headlessly through {@link #startTracking}
+	 */
+	GOTRRuneTrackerPlugin(Client client, ClientThread clientThread, ScheduledExecutorService executor,
+		GOTRRuneTrackerConfig config, RuneSpriteCache spriteCache)
+	{
+		this.client = client;
+		this.clientThread = clientThread;
+		this.executor = executor;
+		this.config = config;
+		this.spriteCache = spriteCache;
+	}
 
 	@Override
 	protected void startUp() throws Exception
 	{
 		log.info("GOTR Rune Tracker started!");
 
-		// Initialize the manager
-		manager = new GOTRRuneTrackerManager();
+		startTracking(TRACKER_DIR.toPath());
+		priceCache.start();
 
-		// Create the panel
-		uiPanel = new GOTRRuneTrackerPanel(manager, this);
+		// Decode the rune icons in the background, the panel shows them once ready
+		spriteCache.load(executor);
+
+		overlay = new GOTRRuneTrackerOverlay(this, manager, rateTracker, spriteCache);
+		if (settings.isShowOverlay())
+		{
+			overlayManager.add(overlay);
+		}
 
 		final BufferedImage icon = ImageUtil.loadImageResource(getClass(), "icon.png");
 
@@ -116,12 +204,57 @@ public class GOTRRuneTrackerPlugin extends Plugin
 
 		// Add to toolbar
 		clientToolbar.addNavigation(uiNavigationButton);
+	}
+
+	/**
+	 * Set up tracking and the panel, saving accounts under the given directory. Leaves out what needs
+	 * the injector: the overlay, the toolbar button, icon loading and price lookups.
+	 */
+	void startTracking(Path trackerDirectory)
+	{
+		this.trackerDirectory = trackerDirectory;
+		settings = TrackerSettings.from(config);
+
+		// Initialize the manager, an account's saved session is loaded when it logs in
+		manager = new GOTRRuneTrackerManager();
+		core = new RuneTrackerCore(manager, this::onRuneGained);
+		journalFlushFuture = executor.scheduleWithFixedDelay(this::flushJournal, 1, 1, TimeUnit.SECONDS);
+
+		lifetimeStore = new LifetimeStatsStore();
+		manager.addListener(lifetimeRecorder);
+
+		priceCache = new RunePriceCache(itemManager, clientThread, executor, this::onPricesUpdated);
+		profitTracker = new ProfitTracker(manager, lifetimeStore, priceCache);
+		manager.addListener(profitTracker);
+
+		rateTracker = new RuneRateTracker(priceCache, settings.getRateWindowMinutes());
+		manager.addListener(rateTracker);
+
+		roundTracker = new RoundTracker();
+		manager.addListener(roundTracker);
+
+		// Create the panel, its components are only built when it is first opened
+		uiPanel = new GOTRRuneTrackerPanel(manager, this, lifetimeStore, profitTracker, rateTracker,
+				roundTracker.getHistory(), spriteCache, metrics);
+
+		// Load the account right away if the plugin was enabled while logged in
+		if (client.getGameState() == GameState.LOGGED_IN)
+		{
+			clientThread.invokeLater(() -> switchAccount(client.getAccountHash()));
+		}
 
 		// Reset tracking variables
 		isInGOTRRegion = false;
-		lastTimeInGOTR = 0;
-		ticksOutsideGOTR = 0;
-		previousInventory.clear();
+		locationCheckPending = true;
+
+		// The player starts outside GOTR until the first region check says otherwise
+		lastTimeInGOTR = System.currentTimeMillis();
+		scheduleAutoReset();
+	}
+
+	GOTRRuneTrackerManager getManager()
+	{
+		return manager;
 	}
 
 	@Override
@@ -135,11 +268,62 @@ public class GOTRRuneTrackerPlugin extends Plugin
 			clientToolbar.removeNavigation(uiNavigationButton);
 		}
 
+		if (overlay != null)
+		{
+			overlayManager.remove(overlay);
+			overlay = null;
+		}
+
+		if (roundTracker != null)
+		{
+			manager.removeListener(roundTracker);
+			roundTracker = null;
+		}
+
+		if (rateTracker != null)
+		{
+			manager.removeListener(rateTracker);
+			rateTracker = null;
+		}
+		if (priceCache != null)
+		{
+			priceCache.stop();
+			manager.removeListener(profitTracker);
+			priceCache = null;
+			profitTracker = null;
+		}
+
+		// Save the session
+		if (journalFlushFuture != null)
+		{
+			journalFlushFuture.cancel(false);
+			journalFlushFuture = null;
+		}
+		pendingJournal = null;
+		if (journal != null)
+		{
+			// Closing may save a completed session, so it runs before the store closes
+			manager.removeListener(journal);
+			executor.execute(journal::close);
+			journal = null;
+		}
+		accountHash = NO_ACCOUNT;
+		if (lifetimeStore != null)
+		{
+			manager.removeListener(lifetimeRecorder);
+			final LifetimeStatsStore store = lifetimeStore;
+			executor.execute(store::close);
+			lifetimeStore = null;
+		}
+
+		timers.cancel(autoResetTimer);
+		wake();
+		notifier.clear();
+
 		// Clear tracking data
-		previousInventory.clear();
+		core.clear();
 		inventoryInitialized = false;
-		isRunecrafting = false;
-		runecraftingTicks = 0;
+		changedInventory = null;
 	}
 
 	@Subscribe
@@ -147,213 +331,568 @@ public class GOTRRuneTrackerPlugin extends Plugin
 	{
 		if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
 		{
+			// A scene was loaded, so the player may have changed region
+			wake();
+			locationCheckPending = true;
+
+			// Load the account's tracker state if another account was tracked before
+			switchAccount(client.getAccountHash());
+
+			// Run anything that came due while logged out
+			timers.advance(System.currentTimeMillis());
+
 			// Optional: Add a chat message when plugin loads
-			if (config.showLoadMessage())
+			if (settings.isShowLoadMessage())
 			{
-				client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "GOTR Rune Tracker Loaded!", null);
+				notifier.post(ChatNotifier.Category.LOAD, "GOTR Rune Tracker Loaded!");
 			}
 		}
 		else if (gameStateChanged.getGameState() == GameState.LOGIN_SCREEN)
 		{
+			// Save the session while the player is logged out, the next login may be another account
+			executor.execute(this::flushJournal);
+
 			// Reset inventory tracking when logged out
+			wake();
+			roundTracker.abandonRound();
 			inventoryInitialized = false;
-			previousInventory.clear();
-			isRunecrafting = false;
-			runecraftingTicks = 0;
+			changedInventory = null;
+			core.clear();
+		}
+	}
+
+	/**
+	 * Make the given account's session and lifetime stats current, keeping only one account loaded
+	 */
+	private void switchAccount(long hash)
+	{
+		// Nothing to load before the account is known, or once the plugin has stopped
+		if (hash == accountHash || hash == NO_ACCOUNT || lifetimeStore == null)
+		{
+			return;
+		}
+
+		log.debug("Loading GOTR tracker state for account {}", hash);
+		Path directory = trackerDirectory.resolve(Long.toString(hash));
+		long now = System.currentTimeMillis();
+
+		// Save the previous account's session as it was, it continues when that account logs in again
+		SessionJournal previous = journal;
+		if (previous != null)
+		{
+			manager.removeListener(previous);
+			executor.execute(previous::close);
+		}
+		accountHash = hash;
+
+		// Reuse the manager, clearing it without completing the previous account's session
+		manager.restore(now, new long[RuneType.COUNT], new long[GOTRLocation.COUNT]);
+		rateTracker.onReset(now);
+		roundTracker.abandonRound();
+		notifier.clear();
+
+		// Queued after any pending session of the previous account, then revalue for the new totals
+		final LifetimeStatsStore store = lifetimeStore;
+		executor.execute(() ->
+		{
+			store.open(directory);
+			clientThread.invokeLater(this::onPricesUpdated);
+		});
+
+		// Opening replays the journal from disk, after the store so a session it already saved is dropped.
+		// Runes gained meanwhile are merged in when it is attached.
+		journal = null;
+		final SessionJournal next = new SessionJournal(directory, lifetimeSessions(store));
+		pendingJournal = next;
+		executor.execute(() ->
+		{
+			next.open();
+			clientThread.invokeLater(() -> attachJournal(next));
+		});
+
+		// Away-time from the previous account does not count towards this one's auto-reset
+		if (!isInGOTRRegion)
+		{
+			lastTimeInGOTR = now;
+			scheduleAutoReset();
+		}
+	}
+
+	/**
+	 * Save completed sessions to the given store, which outlives the plugin's reference to it until the
+	 * executor closes it
+	 */
+	private SessionJournal.SessionStore lifetimeSessions(LifetimeStatsStore store)
+	{
+		return new SessionJournal.SessionStore()
+		{
+			@Override
+			public boolean isSaved(long sessionStartTime)
+			{
+				return store.isLastSession(sessionStartTime);
+			}
+
+			@Override
+			public void save(long sessionStartTime, long sessionEndTime, long[] runeCounts)
+			{
+				store.addSession(sessionStartTime, sessionEndTime, runeCounts);
+
+				// The lifetime value is read from the store's totals, so revalue once they include the session
+				clientThread.invokeLater(GOTRRuneTrackerPlugin.this::onPricesUpdated);
+			}
+		};
+	}
+
+	/**
+	 * Continue the saved session of a journal opened in the background, unless another account was
+	 * loaded or the plugin stopped in the meantime
+	 */
+	private void attachJournal(SessionJournal next)
+	{
+		if (next != pendingJournal)
+		{
+			executor.execute(next::close);
+			return;
+		}
+
+		pendingJournal = null;
+		next.adopt(manager);
+		manager.addListener(next);
+		journal = next;
+	}
+
+	private void flushJournal()
+	{
+		SessionJournal current = journal;
+		if (current != null)
+		{
+			current.flush();
 		}
 	}
 
 	@Subscribe
 	public void onGameTick(GameTick event)
 	{
-		if (client.getGameState() != GameState.LOGGED_IN)
+		if (dormant || client.getGameState() != GameState.LOGGED_IN)
 		{
 			return;
 		}
 
+		long start = System.nanoTime();
+
 		// Initialize inventory tracking on first tick when logged in
 		if (!inventoryInitialized)
 		{
-			updatePreviousInventory();
+			scanRuneContainers();
 			inventoryInitialized = true;
+			runeContainersDirty = false;
 		}
 
-		// Check if player is in GOTR region
-		boolean currentlyInGOTR = isPlayerInGOTRRegion();
-
-		if (currentlyInGOTR)
+		// Scan once for every container change of this tick, and only when the core would use the scan
+		if (runeContainersDirty)
 		{
-			// Player is in GOTR region
-			if (!isInGOTRRegion)
+			runeContainersDirty = false;
+			if (core.isScanNeeded())
 			{
-				// Just entered GOTR
-				log.info("Player entered GOTR region");
-				manager.setInGOTRRegion(true);
-				if (config.showRegionMessages())
-				{
-					client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Entered GOTR region - tracking enabled!", null);
-				}
+				long inventoryStart = System.nanoTime();
+				scanRuneContainers();
+				metrics.record(PluginMetrics.Probe.RUNE_RECONCILE, inventoryStart);
 			}
-
-			isInGOTRRegion = true;
-			lastTimeInGOTR = System.currentTimeMillis();
-			ticksOutsideGOTR = 0;
 		}
-		else
+		core.onTick();
+
+		// Region is only re-evaluated after a scene load. The temple and every altar are reached through a
+		// portal, which loads a scene, and reading the player's location allocates, so it is not polled.
+		if (locationCheckPending)
 		{
-			// Player is not in GOTR region
-			if (isInGOTRRegion)
-			{
-				// Just left GOTR
-				log.info("Player left GOTR region");
-				manager.setInGOTRRegion(false);
-				if (config.showRegionMessages())
-				{
-					client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Left GOTR region - tracking paused", null);
-				}
-			}
+			long regionStart = System.nanoTime();
+			updateLocation();
+			metrics.record(PluginMetrics.Probe.REGION_CHECK, regionStart);
+		}
 
-			isInGOTRRegion = false;
-			ticksOutsideGOTR++;
+		timers.advance(System.currentTimeMillis());
 
-			// Reset due to being outside GOTR for too long
-			checkForAutoReset();
-		}
+		// Send the chat messages queued since the last tick
+		notifier.flush(client);
 
 		// Update panel
 		if (uiPanel != null)
 		{
 			uiPanel.updateDisplay();
 		}
+
+		// Nothing can change outside GOTR until the next scene load
+		if (!isInGOTRRegion && !locationCheckPending && !core.isCraftWindowOpen() && notifier.isEmpty())
+		{
+			enterDormant();
+		}
+
+		metrics.record(PluginMetrics.Probe.GAME_TICK, start);
 	}
 
-	private boolean isPlayerInGOTRRegion()
+	/**
+	 * Stop handling ticks and container changes until {@link #wake()}, waking early if an auto-reset comes due
+	 */
+	private void enterDormant()
 	{
-		if (client.getLocalPlayer() == null)
+		dormant = true;
+		if (autoResetTimer.isScheduled())
 		{
-			return false;
+			long delay = Math.max(0, autoResetTimer.getDeadline() - System.currentTimeMillis());
+			wakeFuture = executor.schedule(() -> clientThread.invokeLater(this::wake), delay, TimeUnit.MILLISECONDS);
 		}
+	}
 
-		WorldPoint playerLocation = client.getLocalPlayer().getWorldLocation();
+	/**
+	 * Leave dormant mode, the next tick runs the full update again
+	 */
+	private void wake()
+	{
+		dormant = false;
+		if (wakeFuture != null)
+		{
+			wakeFuture.cancel(false);
+			wakeFuture = null;
+		}
+	}
+
+	private void updateLocation()
+	{
+		Player localPlayer = client.getLocalPlayer();
+		if (localPlayer == null)
+		{
+			// Not placed in the scene yet, try again next tick
+			return;
+		}
 
-		if (playerLocation == null)
+		locationCheckPending = false;
+
+		WorldPoint playerLocation = localPlayer.getWorldLocation();
+		if (!core.onRegionChanged(playerLocation == null ? -1 : playerLocation.getRegionID()))
 		{
-			return false;
+			return;
 		}
 
-		int regionId = playerLocation.getRegionID();
+		GOTRLocation location = core.getLocation();
+		log.debug("Player moved to {}", location);
 
-		// Check if player is in the main GOTR region
-		if (regionId == TEMPLE_OF_EYE_REGION)
+		if (inventoryInitialized && core.isScanNeeded())
 		{
-			return true;
+			// Arrived at an altar, take the baseline for its first craft
+			scanRuneContainers();
 		}
 
-		// Check if player is in any of the altar regions
-		for (int altarRegion : ALTAR_REGIONS)
+		if (location != null && !isInGOTRRegion)
 		{
-			if (regionId == altarRegion)
+			// Just entered GOTR
+			log.info("Player entered GOTR region");
+			if (settings.isShowRegionMessages())
 			{
-				return true;
+				notifier.post(ChatNotifier.Category.REGION, "Entered GOTR region - tracking enabled!");
 			}
+
+			isInGOTRRegion = true;
+			timers.cancel(autoResetTimer);
 		}
+		else if (location == null && isInGOTRRegion)
+		{
+			// Just left GOTR
+			log.info("Player left GOTR region");
+			if (settings.isShowRegionMessages())
+			{
+				notifier.post(ChatNotifier.Category.REGION, "Left GOTR region - tracking paused");
+			}
 
-		return false;
+			isInGOTRRegion = false;
+			roundTracker.abandonRound();
+			lastTimeInGOTR = System.currentTimeMillis();
+			scheduleAutoReset();
+		}
+	}
+
+	@Subscribe
+	public void onAnimationChanged(AnimationChanged event)
+	{
+		if (dormant)
+		{
+			return;
+		}
+
+		Actor actor = event.getActor();
+		if (actor != null && actor == client.getLocalPlayer())
+		{
+			core.onLocalPlayerAnimation(actor.getAnimation());
+		}
 	}
 
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event)
 	{
-		// Only track inventory changes when in GOTR region
-		if (!isInGOTRRegion || !inventoryInitialized || event.getContainerId() != InventoryID.INVENTORY.getId())
+		// Only mark the change, the inventory is compared once at the end of the tick
+		if (!dormant && inventoryInitialized && event.getContainerId() == InventoryID.INVENTORY.getId())
+		{
+			runeContainersDirty = true;
+			changedInventory = event.getItemContainer();
+		}
+	}
+
+	@Subscribe
+	public void onVarbitChanged(VarbitChanged event)
+	{
+		if (!dormant && inventoryInitialized && isRunePouchVarbit(event.getVarbitId()))
+		{
+			runeContainersDirty = true;
+		}
+	}
+
+	@Subscribe
+	public void onCommandExecuted(CommandExecuted event)
+	{
+		if (!PERF_COMMAND.equalsIgnoreCase(event.getCommand()))
+		{
+			return;
+		}
+
+		if (event.getArguments().length > 0 && "reset".equalsIgnoreCase(event.getArguments()[0]))
+		{
+			metrics.reset(false);
+			SwingUtilities.invokeLater(() -> metrics.reset(true));
+			client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "GOTR Rune Tracker timings reset", null);
+			return;
+		}
+
+		// Full numbers go to the log, a short summary to the chat
+		for (PluginMetrics.Probe probe : PluginMetrics.Probe.values())
+		{
+			LatencyHistogram histogram = metrics.getHistogram(probe);
+			log.info("GOTR timing: {}", histogram);
+			client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", String.format("%s: %,d calls, p99 <%,dns, max %,dns",
+					histogram.getName(), histogram.getCount(), histogram.getPercentileNanos(0.99), histogram.getMaxNanos()), null);
+		}
+	}
+
+	@Subscribe
+	public void onChatMessage(ChatMessage event)
+	{
+		if (event.getType() != ChatMessageType.GAMEMESSAGE || !isInGOTRRegion)
 		{
 			return;
 		}
 
-		// Get current inventory
-		Map<Integer, Integer> currentInventory = getCurrentInventory();
+		if (roundTracker.onGameMessage(event.getMessage(), System.currentTimeMillis()) && settings.isResetOnNewSession())
+		{
+			log.info("Resetting GOTR tracker for the new round");
+			manager.reset();
+		}
+	}
 
-		// Compare with previous inventory to detect changes
-		for (Map.Entry<Integer, String> runeEntry : RUNE_IDS.entrySet())
+	/**
+	 * Called by the core for every rune gain it counts
+	 */
+	private void onRuneGained(RuneType rune, int runesGained)
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Detected {} {} gained", runesGained, rune.getDisplayName());
+		}
+
+		if (settings.isShowRuneGainedMessages())
 		{
-			int runeId = runeEntry.getKey();
-			String runeName = runeEntry.getValue();
+			notifier.addGain(rune, runesGained);
+		}
+	}
+
+	/**
+	 * Feed the runes in the inventory and rune pouch to the core as one scan, so runes moved between
+	 * them are not counted as gains
+	 */
+	private void scanRuneContainers()
+	{
+		core.beginScan();
 
-			int previousCount = previousInventory.getOrDefault(runeId, 0);
-			int currentCount = currentInventory.getOrDefault(runeId, 0);
+		ItemContainer inventory = changedInventory != null ? changedInventory : client.getItemContainer(InventoryID.INVENTORY);
+		changedInventory = null;
 
-			if (currentCount > previousCount)
+		// The pouch varbits keep their runes while the pouch is banked, so they only count when it is carried
+		boolean carryingPouch = false;
+		if (inventory != null)
+		{
+			for (Item item : inventory.getItems())
 			{
-				int runesGained = currentCount - previousCount;
-				manager.addRunes(runeName, runesGained, 0);
+				if (item != null)
+				{
+					core.accumulate(item.getId(), item.getQuantity());
+					carryingPouch |= isRunePouch(item.getId());
+				}
+			}
+		}
 
-				log.debug("Detected {} {} gained", runesGained, runeName);
+		EnumComposition pouchRunes = null;
+		for (int slot = 0; carryingPouch && slot < RUNE_POUCH_RUNE_VARBITS.length; slot++)
+		{
+			int rune = client.getVarbitValue(RUNE_POUCH_RUNE_VARBITS[slot]);
+			if (rune == 0)
+			{
+				continue;
+			}
 
-				if (config.showRuneGainedMessages())
+			if (pouchRunes == null)
+			{
+				pouchRunes = client.getEnum(EnumID.RUNEPOUCH_RUNE);
+				if (pouchRunes == null)
 				{
-					client.addChatMessage(ChatMessageType.GAMEMESSAGE, "",
-							"+" + runesGained + " " + runeName + " tracked", null);
+					break;
 				}
 			}
+			core.accumulate(pouchRunes.getIntValue(rune), client.getVarbitValue(RUNE_POUCH_AMOUNT_VARBITS[slot]));
 		}
 
-		// Update inventory
-		previousInventory = currentInventory;
+		core.endScan();
 	}
 
-	private Map<Integer, Integer> getCurrentInventory()
+	private static boolean isRunePouch(int itemId)
 	{
-		Map<Integer, Integer> inventory = new HashMap<>();
+		return itemId == ItemID.RUNE_POUCH || itemId == ItemID.RUNE_POUCH_L
+			|| itemId == ItemID.DIVINE_RUNE_POUCH || itemId == ItemID.DIVINE_RUNE_POUCH_L;
+	}
 
-		if (client.getItemContainer(InventoryID.INVENTORY) != null)
+	private static boolean isRunePouchVarbit(int varbitId)
+	{
+		for (int slot = 0; slot < RUNE_POUCH_RUNE_VARBITS.length; slot++)
 		{
-			Item[] items = client.getItemContainer(InventoryID.INVENTORY).getItems();
+			if (varbitId == RUNE_POUCH_RUNE_VARBITS[slot] || varbitId == RUNE_POUCH_AMOUNT_VARBITS[slot])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
 
-			for (Item item : items)
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!"gotrrunetracker".equals(event.getGroup()))
+		{
+			return;
+		}
+
+		settings = TrackerSettings.from(config);
+
+		// Only registered while enabled, so a hidden overlay costs nothing per frame
+		if (overlay != null)
+		{
+			if (settings.isShowOverlay())
 			{
-				if (item != null && RUNE_IDS.containsKey(item.getId()))
-				{
-					inventory.put(item.getId(), inventory.getOrDefault(item.getId(), 0) + item.getQuantity());
-				}
+				overlayManager.add(overlay);
+			}
+			else
+			{
+				overlayManager.remove(overlay);
 			}
 		}
 
-		return inventory;
+		// The timer wheel and rate tracker belong to the client thread, wake so a dormant plugin picks up
+		// the new deadline
+		clientThread.invokeLater(() ->
+		{
+			if (rateTracker != null)
+			{
+				rateTracker.setWindowMinutes(settings.getRateWindowMinutes());
+			}
+
+			if (!isInGOTRRegion)
+			{
+				scheduleAutoReset();
+				wake();
+			}
+		});
+	}
+
+	/**
+	 * Schedule the auto-reset for the configured time after the player left GOTR
+	 */
+	private void scheduleAutoReset()
+	{
+		TrackerSettings current = settings;
+		if (current.isAutoReset())
+		{
+			timers.schedule(autoResetTimer, lastTimeInGOTR + current.getAutoResetMillis());
+		}
+		else
+		{
+			timers.cancel(autoResetTimer);
+		}
 	}
 
-	private void updatePreviousInventory()
+	private void autoReset()
 	{
-		previousInventory = getCurrentInventory();
+		TrackerSettings current = settings;
+		log.info("Auto-resetting GOTR tracker after {} minutes outside region", current.getAutoResetMinutes());
+		manager.reset();
+
+		if (current.isShowResetMessage())
+		{
+			notifier.post(ChatNotifier.Category.RESET,
+					"GOTR Tracker auto-reset after " + current.getAutoResetMinutes() + " minutes outside region");
+		}
+
+		if (uiPanel != null)
+		{
+			uiPanel.updateDisplay();
+		}
 	}
 
-	private void checkForAutoReset()
+	private void onPricesUpdated()
 	{
-		if (!config.enableAutoReset())
+		if (profitTracker == null)
 		{
 			return;
 		}
 
-		int resetTimeMinutes = config.autoResetTimeMinutes();
-		int resetTimeTicks = resetTimeMinutes * 100;
+		profitTracker.revalue();
+		if (uiPanel != null)
+		{
+			uiPanel.updateDisplay();
+		}
+	}
 
-		if (ticksOutsideGOTR >= resetTimeTicks)
+	/**
+	 * Reset the session on the client thread, where the manager is updated
+	 */
+	public void resetSession()
+	{
+		clientThread.invokeLater(() ->
 		{
-			log.info("Auto-resetting GOTR tracker after {} minutes outside region", resetTimeMinutes);
 			manager.reset();
-			ticksOutsideGOTR = 0;
-
-			// Reset inventory tracking
-			if (inventoryInitialized)
+			if (uiPanel != null)
 			{
-				updatePreviousInventory();
+				uiPanel.updateDisplay();
 			}
+		});
+	}
 
-			if (config.showResetMessage())
+	/**
+	 * Export the current account's sessions and the recorded rounds to a CSV or JSON file in the background
+	 *
+	 * @return The number of records written, once the export finishes
+	 */
+	public CompletableFuture<Integer> exportHistory(Path file)
+	{
+		final HistoryExporter exporter = new HistoryExporter(lifetimeStore,
+				roundTracker == null ? null : roundTracker.getHistory());
+		return CompletableFuture.supplyAsync(() ->
+		{
+			try
 			{
-				client.addChatMessage(ChatMessageType.GAMEMESSAGE, "",
-						"GOTR Tracker auto-reset after " + resetTimeMinutes + " minutes outside region", null);
+				int records = exporter.export(file, HistoryExporter.Format.forFile(file));
+				log.info("Exported {} GOTR records to {}", records, file);
+				return records;
 			}
-		}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
 	}
 
 	@Provides
@@ -362,22 +901,30 @@ public class GOTRRuneTrackerPlugin extends Plugin
 		return configManager.getConfig(GOTRRuneTrackerConfig.class);
 	}
 
-	// Get time remaining before auto-reset
+	/**
+	 * Get the whole minutes remaining before the auto-reset, or -1 if none is scheduled
+	 */
 	public int getTimeUntilAutoReset()
 	{
-		if (!config.enableAutoReset())
+		if (!autoResetTimer.isScheduled())
 		{
-			return -1; // Auto-reset disabled
+			return -1;
 		}
 
-		int resetTimeMinutes = config.autoResetTimeMinutes();
-		int resetTimeTicks = resetTimeMinutes * 100;
-		int ticksRemaining = resetTimeTicks - ticksOutsideGOTR;
+		long remaining = autoResetTimer.getDeadline() - System.currentTimeMillis();
+		return (int) Math.max(0, remaining / 60_000);
+	}
 
-		return Math.max(0, ticksRemaining / 100); // Convert back to minutes
+	public boolean isInGOTRRegion()
+	{
+		return isInGOTRRegion;
 	}
 
-	public boolean isInGOTRRegion() {
-        return false;
-    }
+	/**
+	 * Get the GOTR location the player is at, or null if outside GOTR
+	 */
+	public GOTRLocation getCurrentLocation()
+	{
+		return core == null ? null : core.getLocation();
+	}
 }
\ No newline at end of file
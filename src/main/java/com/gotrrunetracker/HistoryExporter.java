@@ -0,0 +1,263 @@
+package com.gotrrunetracker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Writes the stored sessions and the recorded rounds to a CSV or JSON file.
+ * <p>
+ * Records are read in small batches and written straight to a buffered writer, so an export uses the
+ * same memory however much history there is. Performs file I/O, so must not be run on the client thread.
+ */
+public class HistoryExporter
+{
+	public enum Format
+	{
+		CSV,
+		JSON;
+
+		/**
+		 * Pick the format from a file name, JSON for {@code .json} files and CSV otherwise
+		 */
+		public static Format forFile(Path file)
+		{
+			return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json") ? JSON : CSV;
+		}
+	}
+
+	private static final String TYPE_SESSION = "session";
+	private static final String TYPE_ROUND = "round";
+
+	// Rune column names, in RuneType order
+	private static final String[] RUNE_KEYS = new String[RuneType.COUNT];
+
+	static
+	{
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			RUNE_KEYS[i] = RuneType.fromOrdinal(i).name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private final LifetimeStatsStore lifetimeStore;
+	private final RoundHistory roundHistory;
+
+	public HistoryExporter(LifetimeStatsStore lifetimeStore, RoundHistory roundHistory)
+	{
+		this.lifetimeStore = lifetimeStore;
+		this.roundHistory = roundHistory;
+	}
+
+	/**
+	 * Export every stored session, then the recorded rounds oldest first
+	 *
+	 * @return How many records were written
+	 */
+	public int export(Path file, Format format) throws IOException
+	{
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+		{
+			RecordWriter records = format == Format.JSON ? new JsonRecordWriter(writer) : new CsvRecordWriter(writer);
+			records.begin();
+
+			if (lifetimeStore != null)
+			{
+				boolean complete = lifetimeStore.forEachSession((startTime, endTime, runeCounts) ->
+					records.record(TYPE_SESSION, startTime, endTime, -1, -1, runeCounts));
+				if (!complete)
+				{
+					throw new IOException("Lifetime stats are not loaded, or another account was loaded during the export");
+				}
+			}
+
+			if (roundHistory != null)
+			{
+				// Only the rounds recorded when the export started, a round replaced since then is skipped
+				RoundHistory.Round round = new RoundHistory.Round();
+				long[] counts = new long[RuneType.COUNT];
+				long end = roundHistory.getRecordedCount();
+				for (long index = Math.max(0, end - RoundHistory.CAPACITY); index < end; index++)
+				{
+					if (!roundHistory.readRound(index, round))
+					{
+						continue;
+					}
+
+					for (int i = 0; i < RuneType.COUNT; i++)
+					{
+						counts[i] = round.getRuneCount(RuneType.fromOrdinal(i));
+					}
+					records.record(TYPE_ROUND, round.getStartTime(), round.getEndTime(),
+						round.getElementalPoints(), round.getCatalyticPoints(), counts);
+				}
+			}
+
+			records.end();
+			return records.count;
+		}
+	}
+
+	/**
+	 * Writes one record per session or round
+	 */
+	private abstract static class RecordWriter
+	{
+		final Writer out;
+		int count = 0;
+
+		RecordWriter(Writer out)
+		{
+			this.out = out;
+		}
+
+		final void record(String type, long startTime, long endTime, int elementalPoints, int catalyticPoints,
+			long[] runeCounts) throws IOException
+		{
+			write(type, startTime, endTime, elementalPoints, catalyticPoints, runeCounts);
+			count++;
+		}
+
+		abstract void begin() throws IOException;
+
+		/**
+		 * @param elementalPoints Points earned, or -1 if not applicable
+		 */
+		abstract void write(String type, long startTime, long endTime, int elementalPoints, int catalyticPoints,
+			long[] runeCounts) throws IOException;
+
+		abstract void end() throws IOException;
+
+		static long total(long[] runeCounts)
+		{
+			long total = 0;
+			for (long count : runeCounts)
+			{
+				total += count;
+			}
+			return total;
+		}
+	}
+
+	private static final class CsvRecordWriter extends RecordWriter
+	{
+		CsvRecordWriter(Writer out)
+		{
+			super(out);
+		}
+
+		@Override
+		void begin() throws IOException
+		{
+			out.write("type,start,end,duration_seconds,elemental_points,catalytic_points,total");
+			for (String key : RUNE_KEYS)
+			{
+				out.write(',');
+				out.write(key);
+			}
+			out.write('\n');
+		}
+
+		@Override
+		void write(String type, long startTime, long endTime, int elementalPoints, int catalyticPoints,
+			long[] runeCounts) throws IOException
+		{
+			out.write(type);
+			out.write(',');
+			out.write(Instant.ofEpochMilli(startTime).toString());
+			out.write(',');
+			out.write(Instant.ofEpochMilli(endTime).toString());
+			out.write(',');
+			out.write(Long.toString((endTime - startTime) / 1000));
+			out.write(',');
+			if (elementalPoints >= 0)
+			{
+				out.write(Integer.toString(elementalPoints));
+			}
+			out.write(',');
+			if (catalyticPoints >= 0)
+			{
+				out.write(Integer.toString(catalyticPoints));
+			}
+			out.write(',');
+			out.write(Long.toString(total(runeCounts)));
+			for (long count : runeCounts)
+			{
+				out.write(',');
+				out.write(Long.toString(count));
+			}
+			out.write('\n');
+		}
+
+		@Override
+		void end()
+		{
+		}
+	}
+
+	private static final class JsonRecordWriter extends RecordWriter
+	{
+		private boolean first = true;
+
+		JsonRecordWriter(Writer out)
+		{
+			super(out);
+		}
+
+		@Override
+		void begin() throws IOException
+		{
+			out.write("[\n");
+		}
+
+		@Override
+		void write(String type, long startTime, long endTime, int elementalPoints, int catalyticPoints,
+			long[] runeCounts) throws IOException
+		{
+			out.write(first ? "  {" : ",\n  {");
+			first = false;
+
+			out.write("\"type\":\"");
+			out.write(type);
+			out.write("\",\"start\":\"");
+			out.write(Instant.ofEpochMilli(startTime).toString());
+			out.write("\",\"end\":\"");
+			out.write(Instant.ofEpochMilli(endTime).toString());
+			out.write("\",\"durationSeconds\":");
+			out.write(Long.toString((endTime - startTime) / 1000));
+			if (elementalPoints >= 0)
+			{
+				out.write(",\"elementalPoints\":");
+				out.write(Integer.toString(elementalPoints));
+				out.write(",\"catalyticPoints\":");
+				out.write(Integer.toString(catalyticPoints));
+			}
+			out.write(",\"total\":");
+			out.write(Long.toString(total(runeCounts)));
+			out.write(",\"runes\":{");
+			for (int i = 0; i < runeCounts.length; i++)
+			{
+				if (i > 0)
+				{
+					out.write(',');
+				}
+				out.write('"');
+				out.write(RUNE_KEYS[i]);
+				out.write("\":");
+				out.write(Long.toString(runeCounts[i]));
+			}
+			out.write("}}");
+		}
+
+		@Override
+		void end() throws IOException
+		{
+			out.write(first ? "]\n" : "\n]\n");
+		}
+	}
+}
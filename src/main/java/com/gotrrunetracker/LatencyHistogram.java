@@ -0,0 +1,95 @@
+package com.gotrrunetracker;
+
+/**
+ * Latency distribution in power of two nanosecond buckets.
+ * <p>
+ * Recording is a few array and field updates and never allocates. Each histogram should be recorded
+ * from a single thread; reading it from another thread gives approximate but usable numbers.
+ */
+public class LatencyHistogram
+{
+	private static final int BUCKETS = 64;
+
+	private final String name;
+	private final long[] buckets = new long[BUCKETS];
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+
+	public LatencyHistogram(String name)
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public void record(long nanos)
+	{
+		count++;
+		totalNanos += nanos;
+		if (nanos > maxNanos)
+		{
+			maxNanos = nanos;
+		}
+
+		// Bucket i holds durations below 2^i nanoseconds
+		buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(nanos, 1)))]++;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getMeanNanos()
+	{
+		long recorded = count;
+		return recorded == 0 ? 0 : totalNanos / recorded;
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+
+	/**
+	 * Get an upper bound of the given percentile, accurate to a power of two
+	 *
+	 * @param fraction Percentile between 0 and 1
+	 */
+	public long getPercentileNanos(double fraction)
+	{
+		long target = (long) Math.ceil(count * fraction);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += buckets[i];
+			if (seen >= target && seen > 0)
+			{
+				return Math.min(1L << i, maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			buckets[i] = 0;
+		}
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%-24s %,10d calls  mean %,8dns  p50 <%,8dns  p99 <%,8dns  max %,10dns",
+			name, count, getMeanNanos(), getPercentileNanos(0.50), getPercentileNanos(0.99), maxNanos);
+	}
+}
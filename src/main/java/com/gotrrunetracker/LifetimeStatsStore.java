@@ -0,0 +1,663 @@
+package com.gotrrunetracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Persistent rune totals from every completed session.
+ * <p>
+ * {@code lifetime.dat} starts with a fixed header holding the lifetime totals, followed by one
+ * fixed-width row per day sorted by date. Opening the store only reads the header, and date ranges
+ * are found by binary search over the rows, so startup cost does not grow with history. Each session
+ * is also appended to {@code sessions.dat} for anything that needs the full history.
+ * <p>
+ * Writing the header commits a session. The header also records the start of the last session added,
+ * so a session replayed after a crash is never added twice, and marks a day row that is about to be
+ * updated in place, which is rebuilt from {@code sessions.dat} if a crash interrupts the update.
+ * <p>
+ * The store can be reopened on another directory, so one instance serves each account in turn.
+ */
+@Slf4j
+public class LifetimeStatsStore
+{
+	/**
+	 * Receives the stored sessions one at a time
+	 */
+	public interface SessionVisitor
+	{
+		/**
+		 * @param runeCounts Session rune counts indexed by RuneType ordinal, only valid during the call
+		 */
+		void visit(long startTime, long endTime, long[] runeCounts) throws IOException;
+	}
+
+	private static final int MAGIC = 0x474F544C; // "GOTL"
+	private static final int FORMAT_VERSION = 2;
+
+	// Header: magic, format version, day count, session count, last session start, pending day, reserved,
+	// lifetime totals by rune
+	static final int HEADER_SIZE = 32 + RuneType.COUNT * 8;
+	private static final int LAST_SESSION_OFFSET = 16;
+	static final int PENDING_DAY_OFFSET = 24;
+	private static final int TOTALS_OFFSET = 32;
+
+	// Pending day when no day row is being updated
+	private static final int NO_DAY = Integer.MIN_VALUE;
+
+	// Day row: epoch day, session count, totals by rune
+	static final int DAY_SIZE = 8 + RuneType.COUNT * 8;
+
+	// Session row: start time, end time, totals by rune
+	static final int SESSION_SIZE = 16 + RuneType.COUNT * 8;
+
+	// Sessions read per batch by forEachSession
+	static final int SESSION_BATCH = 256;
+
+	static final String STATS_FILE = "lifetime.dat";
+	static final String SESSIONS_FILE = "sessions.dat";
+
+	private final ZoneId zone;
+	private Path directory;
+
+	private FileChannel stats;
+	private FileChannel sessions;
+
+	// Header contents, mirrored in memory
+	private final long[] totals = new long[RuneType.COUNT];
+	private int dayCount = 0;
+	private int sessionCount = 0;
+	private long lastSessionStart = 0;
+	private int pendingDay = NO_DAY;
+
+	// Copies of the header published for readers, so they never wait on file I/O
+	private volatile long[] publishedTotals = new long[RuneType.COUNT];
+	private volatile int publishedSessionCount = 0;
+	private volatile long publishedLastSessionStart = 0;
+
+	// Reused for reads and writes, guarded by this
+	private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+	private final ByteBuffer dayBuffer = ByteBuffer.allocate(DAY_SIZE);
+	private final ByteBuffer dayKeyBuffer = ByteBuffer.allocate(4);
+	private final ByteBuffer sessionBuffer = ByteBuffer.allocate(SESSION_SIZE);
+
+	// Incremented whenever a session is added, so views can skip redundant refreshes
+	private volatile int version = 0;
+
+	public LifetimeStatsStore()
+	{
+		this(ZoneId.systemDefault());
+	}
+
+	LifetimeStatsStore(ZoneId zone)
+	{
+		this.zone = zone;
+	}
+
+	/**
+	 * Open the store in the given directory, reading only its header. Closes the store first if it is open.
+	 */
+	public synchronized void open(Path directory)
+	{
+		close();
+		this.directory = directory;
+		clearHeader();
+
+		try
+		{
+			Files.createDirectories(directory);
+			stats = FileChannel.open(directory.resolve(STATS_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			sessions = FileChannel.open(directory.resolve(SESSIONS_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			if (stats.size() >= HEADER_SIZE && readHeader())
+			{
+				log.debug("Loaded GOTR lifetime stats: {} sessions over {} days", sessionCount, dayCount);
+				if (pendingDay != NO_DAY)
+				{
+					rebuildDay(pendingDay);
+				}
+			}
+			else
+			{
+				if (stats.size() > 0)
+				{
+					log.warn("Ignoring unreadable GOTR lifetime stats in {}", directory);
+				}
+
+				stats.truncate(0);
+				sessions.truncate(0);
+				writeHeader(stats);
+			}
+
+			publish();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open GOTR lifetime stats in {}", directory, e);
+			close();
+			clearHeader();
+			publish();
+		}
+	}
+
+	public synchronized void close()
+	{
+		closeQuietly(stats);
+		closeQuietly(sessions);
+		stats = null;
+		sessions = null;
+	}
+
+	/**
+	 * Roll a completed session into the store, unless it is the session added last. Performs file I/O,
+	 * so must not be called from the client thread.
+	 *
+	 * @param startTime  When the session started, in epoch milliseconds
+	 * @param endTime    When the session ended, in epoch milliseconds
+	 * @param runeCounts Session rune counts indexed by RuneType ordinal
+	 */
+	public synchronized void addSession(long startTime, long endTime, long[] runeCounts)
+	{
+		if (stats == null)
+		{
+			return;
+		}
+
+		if (startTime == lastSessionStart)
+		{
+			log.debug("GOTR session started at {} is already in the lifetime stats", startTime);
+			return;
+		}
+
+		try
+		{
+			// Past the rows the header counts, so nothing refers to it until the header is written
+			sessionBuffer.clear();
+			sessionBuffer.putLong(startTime);
+			sessionBuffer.putLong(endTime);
+			for (long count : runeCounts)
+			{
+				sessionBuffer.putLong(count);
+			}
+			sessionBuffer.flip();
+			sessions.write(sessionBuffer, (long) sessionCount * SESSION_SIZE);
+
+			for (int i = 0; i < totals.length; i++)
+			{
+				totals[i] += runeCounts[i];
+			}
+			sessionCount++;
+			lastSessionStart = startTime;
+
+			addToDay(toEpochDay(endTime), runeCounts);
+			publish();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to save GOTR session to lifetime stats", e);
+
+			// Go back to what the file holds, the session is added again on the next attempt
+			reloadHeader();
+		}
+	}
+
+	/**
+	 * Get whether the session that started at the given time is the last one added
+	 */
+	public boolean isLastSession(long startTime)
+	{
+		return startTime != 0 && startTime == publishedLastSessionStart;
+	}
+
+	/**
+	 * Copy the lifetime totals into the given array, indexed by RuneType ordinal
+	 */
+	public void copyTotals(long[] dest)
+	{
+		long[] published = publishedTotals;
+		System.arraycopy(published, 0, dest, 0, published.length);
+	}
+
+	public int getSessionCount()
+	{
+		return publishedSessionCount;
+	}
+
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Sum the rune counts of every day in the inclusive date range into the given array
+	 *
+	 * @return Whether the query succeeded
+	 */
+	public synchronized boolean queryRange(LocalDate from, LocalDate to, long[] dest)
+	{
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			dest[i] = 0;
+		}
+
+		if (stats == null)
+		{
+			return false;
+		}
+
+		try
+		{
+			long last = to.toEpochDay();
+			for (int row = findRow(from.toEpochDay()); row < dayCount; row++)
+			{
+				readDay(row);
+				if (dayBuffer.getInt(0) > last)
+				{
+					break;
+				}
+
+				for (int i = 0; i < RuneType.COUNT; i++)
+				{
+					dest[i] += dayBuffer.getLong(8 + i * 8);
+				}
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to read GOTR lifetime stats", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Read every stored session in order. Rows are copied out in batches and visited without holding the
+	 * store, so a slow visitor never delays a session being added. Performs file I/O, so must not be
+	 * called from the client thread.
+	 *
+	 * @return Whether the sessions could be read; false if the store is closed or reopened meanwhile
+	 */
+	public boolean forEachSession(SessionVisitor visitor) throws IOException
+	{
+		FileChannel channel;
+		int end;
+		synchronized (this)
+		{
+			channel = sessions;
+			end = sessionCount;
+		}
+
+		if (channel == null)
+		{
+			return false;
+		}
+
+		ByteBuffer batch = ByteBuffer.allocate(SESSION_BATCH * SESSION_SIZE);
+		long[] runeCounts = new long[RuneType.COUNT];
+		for (int row = 0; row < end; row += SESSION_BATCH)
+		{
+			batch.clear();
+			batch.limit(Math.min(SESSION_BATCH, end - row) * SESSION_SIZE);
+			if (!readSessions(channel, row, batch))
+			{
+				return false;
+			}
+
+			for (int offset = 0; offset < batch.limit(); offset += SESSION_SIZE)
+			{
+				for (int i = 0; i < RuneType.COUNT; i++)
+				{
+					runeCounts[i] = batch.getLong(offset + 16 + i * 8);
+				}
+				visitor.visit(batch.getLong(offset), batch.getLong(offset + 8), runeCounts);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fill the batch with session rows from the given row on, unless the store has moved to other files
+	 */
+	private synchronized boolean readSessions(FileChannel channel, int row, ByteBuffer batch) throws IOException
+	{
+		if (channel != sessions)
+		{
+			return false;
+		}
+
+		long position = (long) row * SESSION_SIZE;
+		while (batch.hasRemaining())
+		{
+			if (channel.read(batch, position + batch.position()) < 0)
+			{
+				throw new IOException("GOTR lifetime sessions file is truncated");
+			}
+		}
+		batch.flip();
+		return true;
+	}
+
+	private void clearHeader()
+	{
+		Arrays.fill(totals, 0);
+		dayCount = 0;
+		sessionCount = 0;
+		lastSessionStart = 0;
+		pendingDay = NO_DAY;
+	}
+
+	private void reloadHeader()
+	{
+		try
+		{
+			if (stats != null && readHeader())
+			{
+				return;
+			}
+		}
+		catch (IOException e)
+		{
+			log.debug("Unable to reload GOTR lifetime stats header", e);
+		}
+
+		// Without a readable header nothing more can be saved safely
+		close();
+		clearHeader();
+		publish();
+	}
+
+	private void publish()
+	{
+		publishedTotals = totals.clone();
+		publishedSessionCount = sessionCount;
+		publishedLastSessionStart = lastSessionStart;
+		version++;
+	}
+
+	/**
+	 * Add a session to its day and commit it by writing the header, the session's totals and row must
+	 * already be in place
+	 */
+	private void addToDay(int epochDay, long[] runeCounts) throws IOException
+	{
+		int row = findRow(epochDay);
+		if (row == dayCount)
+		{
+			// Appended past the rows the header counts, so the header commits both
+			fillDay(epochDay);
+			addToRow(runeCounts);
+			dayBuffer.rewind();
+			stats.write(dayBuffer, dayPosition(row));
+
+			dayCount++;
+			writeHeader(stats);
+			return;
+		}
+
+		readDay(row);
+		if (dayBuffer.getInt(0) != epochDay)
+		{
+			insertDay(row, epochDay, runeCounts);
+			return;
+		}
+
+		// Updated in place after the header commits the session, so a crash in between leaves the day
+		// marked to be rebuilt from the sessions
+		pendingDay = epochDay;
+		writeHeader(stats);
+
+		addToRow(runeCounts);
+		dayBuffer.rewind();
+		stats.write(dayBuffer, dayPosition(row));
+
+		pendingDay = NO_DAY;
+		writeHeader(stats);
+	}
+
+	/**
+	 * Insert a day before the given row. Days are normally added in order, so this only happens when the
+	 * clock went backwards. Shifting rows in place would corrupt the table if interrupted, so it is
+	 * rewritten with the new header into a new file, which commits the session by replacing the old one
+	 * in a single move.
+	 */
+	private void insertDay(int row, int epochDay, long[] runeCounts) throws IOException
+	{
+		Path file = directory.resolve(STATS_FILE);
+		Path rewrittenFile = directory.resolve(STATS_FILE + ".tmp");
+		try (FileChannel rewritten = FileChannel.open(rewrittenFile,
+			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+		{
+			dayCount++;
+			try
+			{
+				writeHeader(rewritten);
+			}
+			finally
+			{
+				dayCount--;
+			}
+
+			rewritten.position(HEADER_SIZE);
+			copyRows(0, row, rewritten);
+
+			fillDay(epochDay);
+			addToRow(runeCounts);
+			dayBuffer.rewind();
+			rewritten.write(dayBuffer);
+
+			copyRows(row, dayCount, rewritten);
+			rewritten.force(true);
+		}
+
+		// Windows can not replace a file that is still open
+		stats.close();
+		try
+		{
+			Files.move(rewrittenFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			stats = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		dayCount++;
+	}
+
+	/**
+	 * Recalculate a day row from the stored sessions, after a crash interrupted updating it
+	 */
+	private void rebuildDay(int epochDay) throws IOException
+	{
+		int row = findRow(epochDay);
+		if (row < dayCount)
+		{
+			readDay(row);
+		}
+		if (row == dayCount || dayBuffer.getInt(0) != epochDay)
+		{
+			// Only days already in the table are updated in place
+			log.warn("GOTR lifetime stats day {} to rebuild is missing", epochDay);
+		}
+		else
+		{
+			fillDay(epochDay);
+			for (int session = 0; session < sessionCount; session++)
+			{
+				sessionBuffer.clear();
+				sessions.read(sessionBuffer, (long) session * SESSION_SIZE);
+				if (toEpochDay(sessionBuffer.getLong(8)) != epochDay)
+				{
+					continue;
+				}
+
+				dayBuffer.putInt(4, dayBuffer.getInt(4) + 1);
+				for (int i = 0; i < RuneType.COUNT; i++)
+				{
+					int offset = 8 + i * 8;
+					dayBuffer.putLong(offset, dayBuffer.getLong(offset) + sessionBuffer.getLong(16 + i * 8));
+				}
+			}
+
+			dayBuffer.rewind();
+			stats.write(dayBuffer, dayPosition(row));
+			log.info("Rebuilt GOTR lifetime stats for day {} after an interrupted update", epochDay);
+		}
+
+		pendingDay = NO_DAY;
+		writeHeader(stats);
+	}
+
+	/**
+	 * Copy day rows from the stats file to the target's current position
+	 */
+	private void copyRows(int from, int to, FileChannel target) throws IOException
+	{
+		long position = dayPosition(from);
+		long end = dayPosition(to);
+		while (position < end)
+		{
+			long copied = stats.transferTo(position, end - position, target);
+			if (copied <= 0)
+			{
+				throw new IOException("GOTR lifetime stats day table is truncated");
+			}
+			position += copied;
+		}
+	}
+
+	private void fillDay(int epochDay)
+	{
+		dayBuffer.clear();
+		dayBuffer.putInt(epochDay);
+		dayBuffer.putInt(0);
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			dayBuffer.putLong(0);
+		}
+	}
+
+	private void addToRow(long[] runeCounts)
+	{
+		dayBuffer.putInt(4, dayBuffer.getInt(4) + 1);
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			int offset = 8 + i * 8;
+			dayBuffer.putLong(offset, dayBuffer.getLong(offset) + runeCounts[i]);
+		}
+	}
+
+	/**
+	 * Find the first row whose day is not before the given day
+	 */
+	private int findRow(long epochDay) throws IOException
+	{
+		int low = 0;
+		int high = dayCount;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			dayKeyBuffer.clear();
+			stats.read(dayKeyBuffer, dayPosition(mid));
+			if (dayKeyBuffer.getInt(0) < epochDay)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private void readDay(int row) throws IOException
+	{
+		dayBuffer.clear();
+		stats.read(dayBuffer, dayPosition(row));
+	}
+
+	private boolean readHeader() throws IOException
+	{
+		headerBuffer.clear();
+		stats.read(headerBuffer, 0);
+		if (headerBuffer.getInt(0) != MAGIC || headerBuffer.getInt(4) != FORMAT_VERSION)
+		{
+			return false;
+		}
+
+		// Counts the files can not hold would send every read past their end
+		int days = headerBuffer.getInt(8);
+		int sessionRows = headerBuffer.getInt(12);
+		if (days < 0 || dayPosition(days) > stats.size()
+			|| sessionRows < 0 || (long) sessionRows * SESSION_SIZE > sessions.size())
+		{
+			return false;
+		}
+
+		dayCount = days;
+		sessionCount = sessionRows;
+		lastSessionStart = headerBuffer.getLong(LAST_SESSION_OFFSET);
+		pendingDay = headerBuffer.getInt(PENDING_DAY_OFFSET);
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			totals[i] = headerBuffer.getLong(TOTALS_OFFSET + i * 8);
+		}
+		return true;
+	}
+
+	private void writeHeader(FileChannel channel) throws IOException
+	{
+		headerBuffer.clear();
+		headerBuffer.putInt(MAGIC);
+		headerBuffer.putInt(FORMAT_VERSION);
+		headerBuffer.putInt(dayCount);
+		headerBuffer.putInt(sessionCount);
+		headerBuffer.putLong(lastSessionStart);
+		headerBuffer.putInt(pendingDay);
+		headerBuffer.putInt(0);
+		for (long total : totals)
+		{
+			headerBuffer.putLong(total);
+		}
+		headerBuffer.flip();
+		channel.write(headerBuffer, 0);
+	}
+
+	private int toEpochDay(long time)
+	{
+		return (int) Instant.ofEpochMilli(time).atZone(zone).toLocalDate().toEpochDay();
+	}
+
+	private static long dayPosition(int row)
+	{
+		return HEADER_SIZE + (long) row * DAY_SIZE;
+	}
+
+	private static void closeQuietly(FileChannel channel)
+	{
+		if (channel == null)
+		{
+			return;
+		}
+
+		try
+		{
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			log.debug("Error closing GOTR lifetime stats", e);
+		}
+	}
+}
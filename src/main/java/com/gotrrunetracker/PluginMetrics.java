@@ -0,0 +1,68 @@
+package com.gotrrunetracker;
+
+/**
+ * Latency histograms for the plugin's hot paths, dumped on demand with the {@code ::gotrperf} command.
+ * <p>
+ * Recording is always on: a probe costs two {@link System#nanoTime()} calls and a histogram update.
+ * Each histogram has a single writer, the thread its probe runs on.
+ */
+public class PluginMetrics
+{
+	public enum Probe
+	{
+		GAME_TICK("onGameTick", false),
+		RUNE_RECONCILE("rune reconcile", false),
+		REGION_CHECK("region check", false),
+		UPDATE_DISPLAY("updateDisplay", false),
+		EDT_REFRESH("EDT refresh", true);
+
+		private final String label;
+		private final boolean edt;
+
+		Probe(String label, boolean edt)
+		{
+			this.label = label;
+			this.edt = edt;
+		}
+	}
+
+	private static final Probe[] PROBES = Probe.values();
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[PROBES.length];
+
+	public PluginMetrics()
+	{
+		for (Probe probe : PROBES)
+		{
+			histograms[probe.ordinal()] = new LatencyHistogram(probe.label);
+		}
+	}
+
+	/**
+	 * Record the time since the given {@link System#nanoTime()} reading
+	 */
+	public void record(Probe probe, long startNanos)
+	{
+		histograms[probe.ordinal()].record(System.nanoTime() - startNanos);
+	}
+
+	public LatencyHistogram getHistogram(Probe probe)
+	{
+		return histograms[probe.ordinal()];
+	}
+
+	/**
+	 * Clear the histograms of the probes run on the EDT, or of those run on the client thread. Must be
+	 * called on that thread, as it is the histograms' only writer.
+	 */
+	public void reset(boolean edt)
+	{
+		for (Probe probe : PROBES)
+		{
+			if (probe.edt == edt)
+			{
+				histograms[probe.ordinal()].reset();
+			}
+		}
+	}
+}
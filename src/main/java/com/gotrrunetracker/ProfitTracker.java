@@ -0,0 +1,109 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+
+/**
+ * Keeps the value of the session and lifetime runes up to date as runes are added.
+ * <p>
+ * Each gain adds its value at the current price, so nothing is recalculated from the rune counts
+ * until prices change. Updated on the client thread; the values can be read from any thread.
+ */
+public class ProfitTracker implements GOTRRuneTrackerManager.Listener
+{
+	private final GOTRRuneTrackerManager manager;
+	private final LifetimeStatsStore lifetimeStore;
+	private final RunePriceCache prices;
+
+	@Getter
+	private volatile long sessionGeValue = 0;
+
+	@Getter
+	private volatile long sessionHaValue = 0;
+
+	// Value of the completed sessions in the lifetime store
+	private volatile long completedGeValue = 0;
+	private volatile long completedHaValue = 0;
+
+	// Incremented whenever the values are recalculated for new prices
+	@Getter
+	private volatile int version = 0;
+
+	private final long[] counts = new long[RuneType.COUNT];
+
+	public ProfitTracker(GOTRRuneTrackerManager manager, LifetimeStatsStore lifetimeStore, RunePriceCache prices)
+	{
+		this.manager = manager;
+		this.lifetimeStore = lifetimeStore;
+		this.prices = prices;
+	}
+
+	public long getLifetimeGeValue()
+	{
+		return completedGeValue + sessionGeValue;
+	}
+
+	public long getLifetimeHaValue()
+	{
+		return completedHaValue + sessionHaValue;
+	}
+
+	@Override
+	public void onRunesAdded(RuneType rune, GOTRLocation location, int count, long time)
+	{
+		sessionGeValue += (long) count * prices.getGePrice(rune);
+		sessionHaValue += (long) count * prices.getHaPrice(rune);
+	}
+
+	@Override
+	public void onSessionCompleted(long sessionStartTime, long sessionEndTime, long[] runeCounts)
+	{
+		completedGeValue += sessionGeValue;
+		completedHaValue += sessionHaValue;
+	}
+
+	@Override
+	public void onReset(long sessionStartTime)
+	{
+		sessionGeValue = 0;
+		sessionHaValue = 0;
+	}
+
+	/**
+	 * Recalculate every value at the current prices. Must be called on the client thread.
+	 */
+	public void revalue()
+	{
+		manager.copyRuneCounts(counts);
+		sessionGeValue = geValue(counts);
+		sessionHaValue = haValue(counts);
+
+		if (lifetimeStore != null)
+		{
+			lifetimeStore.copyTotals(counts);
+			completedGeValue = geValue(counts);
+			completedHaValue = haValue(counts);
+		}
+
+		version++;
+	}
+
+	private long geValue(long[] runeCounts)
+	{
+		long value = 0;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			value += runeCounts[i] * prices.getGePrice(RuneType.fromOrdinal(i));
+		}
+		return value;
+	}
+
+	private long haValue(long[] runeCounts)
+	{
+		long value = 0;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			value += runeCounts[i] * prices.getHaPrice(RuneType.fromOrdinal(i));
+		}
+		return value;
+	}
+}
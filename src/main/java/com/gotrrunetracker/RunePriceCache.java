@@ -0,0 +1,152 @@
+package com.gotrrunetracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.game.ItemManager;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grand Exchange and high alchemy values of the GOTR runes.
+ * <p>
+ * Prices are held in an immutable table behind a volatile reference, so reading one is a plain
+ * array access on any thread. The executor only times the refreshes; looking up a price needs the
+ * item's composition, so the table is rebuilt in one short client thread task. Prices are not known
+ * until the client has loaded them, so missing ones are retried shortly after.
+ */
+@Slf4j
+public class RunePriceCache
+{
+	static final long EXPIRY_MINUTES = 30;
+	static final long RETRY_SECONDS = 10;
+
+	private static final class PriceTable
+	{
+		private final int[] gePrices;
+		private final int[] haPrices;
+
+		PriceTable(int[] gePrices, int[] haPrices)
+		{
+			this.gePrices = gePrices;
+			this.haPrices = haPrices;
+		}
+	}
+
+	private final ItemManager itemManager;
+	private final ClientThread clientThread;
+	private final ScheduledExecutorService executor;
+	private final Runnable onUpdate;
+
+	private volatile PriceTable table = new PriceTable(new int[RuneType.COUNT], new int[RuneType.COUNT]);
+	private ScheduledFuture<?> refreshFuture;
+	private ScheduledFuture<?> retryFuture;
+
+	/**
+	 * @param onUpdate Run on the client thread each time new prices are published
+	 */
+	public RunePriceCache(ItemManager itemManager, ClientThread clientThread, ScheduledExecutorService executor, Runnable onUpdate)
+	{
+		this.itemManager = itemManager;
+		this.clientThread = clientThread;
+		this.executor = executor;
+		this.onUpdate = onUpdate;
+	}
+
+	/**
+	 * Load prices now, then again every time they expire
+	 */
+	public synchronized void start()
+	{
+		refreshFuture = executor.scheduleWithFixedDelay(this::refresh, 0, EXPIRY_MINUTES, TimeUnit.MINUTES);
+	}
+
+	public synchronized void stop()
+	{
+		if (refreshFuture != null)
+		{
+			refreshFuture.cancel(false);
+			refreshFuture = null;
+		}
+
+		if (retryFuture != null)
+		{
+			retryFuture.cancel(false);
+			retryFuture = null;
+		}
+	}
+
+	/**
+	 * Get the Grand Exchange price of a rune, or 0 if prices have not loaded yet
+	 */
+	public int getGePrice(RuneType rune)
+	{
+		return table.gePrices[rune.ordinal()];
+	}
+
+	/**
+	 * Get the high alchemy value of a rune, or 0 if prices have not loaded yet
+	 */
+	public int getHaPrice(RuneType rune)
+	{
+		return table.haPrices[rune.ordinal()];
+	}
+
+	/**
+	 * Queue a rebuild of the table on the client thread, where item compositions can be read
+	 */
+	private void refresh()
+	{
+		clientThread.invokeLater(this::rebuild);
+	}
+
+	private void rebuild()
+	{
+		// Every rune trades on the Grand Exchange, so a zero price has not been loaded yet. Keep the last
+		// known price for it and try again shortly.
+		PriceTable current = table;
+		int[] gePrices = new int[RuneType.COUNT];
+		int[] haPrices = new int[RuneType.COUNT];
+		boolean missing = false;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			int itemId = RuneType.fromOrdinal(i).getItemId();
+			int price = itemManager.getItemPrice(itemId);
+			if (price <= 0)
+			{
+				missing = true;
+				price = current.gePrices[i];
+			}
+			gePrices[i] = price;
+			haPrices[i] = itemManager.getItemComposition(itemId).getHaPrice();
+		}
+
+		table = new PriceTable(gePrices, haPrices);
+		log.debug("Refreshed GOTR rune prices");
+		onUpdate.run();
+
+		if (missing)
+		{
+			scheduleRetry();
+		}
+	}
+
+	private synchronized void scheduleRetry()
+	{
+		// Once stopped, or with a retry already pending, there is nothing to schedule
+		if (refreshFuture != null && retryFuture == null)
+		{
+			retryFuture = executor.schedule(this::retry, RETRY_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	private void retry()
+	{
+		synchronized (this)
+		{
+			retryFuture = null;
+		}
+		refresh();
+	}
+}
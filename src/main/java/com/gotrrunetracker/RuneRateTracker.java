@@ -0,0 +1,282 @@
+package com.gotrrunetracker;
+
+import java.util.Arrays;
+
+/**
+ * Runes-per-hour and profit-per-hour rates for the current session.
+ * <p>
+ * Rates are measured against an active clock that only runs while the player is in GOTR. Each gain
+ * is added to a ring of fixed-length buckets covering the sliding window, and to an exponentially
+ * weighted rate, so a gain costs O(1) and reading a rate never scans the session history.
+ * Updated on the client thread and read on other threads through a {@link SequenceLock}.
+ */
+public class RuneRateTracker implements GOTRRuneTrackerManager.Listener
+{
+	static final long BUCKET_MILLIS = 10_000;
+	static final long EWMA_TIME_CONSTANT_MILLIS = 5 * 60_000;
+
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+	// Longest window allowed, which bounds the bucket ring to a few hundred kilobytes
+	static final int MAX_WINDOW_MINUTES = 240;
+
+	// Rate channels: one per rune, then all runes, then GE value
+	static final int TOTAL_CHANNEL = RuneType.COUNT;
+	static final int VALUE_CHANNEL = RuneType.COUNT + 1;
+	private static final int CHANNELS = RuneType.COUNT + 2;
+
+	/**
+	 * The sliding window's length and its ring of bucketCount rows of CHANNELS values, replaced as a
+	 * whole so a reader never pairs an array with another window's length
+	 */
+	private static final class Window
+	{
+		private final long windowMillis;
+		private final int bucketCount;
+		private final long[] buckets;
+
+		Window(int windowMinutes)
+		{
+			windowMillis = Math.min(Math.max(1, windowMinutes), MAX_WINDOW_MINUTES) * 60_000L;
+			bucketCount = (int) (windowMillis / BUCKET_MILLIS);
+			buckets = new long[bucketCount * CHANNELS];
+		}
+	}
+
+	private final RunePriceCache prices;
+
+	// Sliding window, plus the running sum of the whole window
+	private Window window;
+	private final long[] windowSums = new long[CHANNELS];
+	private long currentBucket = 0;
+
+	// Exponentially weighted rates in units per millisecond, as of ewmaTime
+	private final double[] ewmaRates = new double[CHANNELS];
+	private long ewmaTime = 0;
+
+	// Active clock
+	private long activeMillis = 0;
+	private long activeSince = -1;
+
+	// Guards the window, buckets and clock for readers on other threads
+	private final SequenceLock lock = new SequenceLock();
+
+	/**
+	 * @param prices        Used to value gains for the profit rate, or null to only track runes
+	 * @param windowMinutes Length of the sliding window
+	 */
+	public RuneRateTracker(RunePriceCache prices, int windowMinutes)
+	{
+		this.prices = prices;
+		this.window = new Window(windowMinutes);
+	}
+
+	/**
+	 * Change the length of the sliding window, which restarts it. Client thread only.
+	 */
+	public void setWindowMinutes(int windowMinutes)
+	{
+		Window next = new Window(windowMinutes);
+		if (next.windowMillis == window.windowMillis)
+		{
+			return;
+		}
+
+		lock.beginWrite();
+		window = next;
+		Arrays.fill(windowSums, 0);
+		lock.endWrite();
+	}
+
+	@Override
+	public void onRunesAdded(RuneType rune, GOTRLocation location, int count, long time)
+	{
+		long value = prices == null ? 0 : (long) count * prices.getGePrice(rune);
+
+		lock.beginWrite();
+		long now = activeTime(time);
+		advance(now);
+
+		add(rune.ordinal(), count);
+		add(TOTAL_CHANNEL, count);
+		add(VALUE_CHANNEL, value);
+
+		decay(now);
+		ewmaRates[rune.ordinal()] += count / (double) EWMA_TIME_CONSTANT_MILLIS;
+		ewmaRates[TOTAL_CHANNEL] += count / (double) EWMA_TIME_CONSTANT_MILLIS;
+		ewmaRates[VALUE_CHANNEL] += value / (double) EWMA_TIME_CONSTANT_MILLIS;
+		lock.endWrite();
+	}
+
+	@Override
+	public void onLocationChanged(GOTRLocation location, long time)
+	{
+		if (location != null && activeSince < 0)
+		{
+			lock.beginWrite();
+			activeSince = time;
+			lock.endWrite();
+		}
+		else if (location == null && activeSince >= 0)
+		{
+			lock.beginWrite();
+			activeMillis += time - activeSince;
+			activeSince = -1;
+			lock.endWrite();
+		}
+	}
+
+	@Override
+	public void onReset(long sessionStartTime)
+	{
+		lock.beginWrite();
+		Arrays.fill(window.buckets, 0);
+		Arrays.fill(windowSums, 0);
+		Arrays.fill(ewmaRates, 0);
+		currentBucket = 0;
+		ewmaTime = 0;
+		activeMillis = 0;
+		if (activeSince >= 0)
+		{
+			activeSince = sessionStartTime;
+		}
+		lock.endWrite();
+	}
+
+	/**
+	 * Get the rate of a rune over the sliding window, per hour of time spent in GOTR
+	 */
+	public double getWindowRate(RuneType rune, long time)
+	{
+		return readRate(rune.ordinal(), time, false);
+	}
+
+	public double getTotalWindowRate(long time)
+	{
+		return readRate(TOTAL_CHANNEL, time, false);
+	}
+
+	public double getValueWindowRate(long time)
+	{
+		return readRate(VALUE_CHANNEL, time, false);
+	}
+
+	/**
+	 * Get the exponentially weighted rate of a rune, per hour of time spent in GOTR
+	 */
+	public double getEwmaRate(RuneType rune, long time)
+	{
+		return readRate(rune.ordinal(), time, true);
+	}
+
+	public double getTotalEwmaRate(long time)
+	{
+		return readRate(TOTAL_CHANNEL, time, true);
+	}
+
+	public double getValueEwmaRate(long time)
+	{
+		return readRate(VALUE_CHANNEL, time, true);
+	}
+
+	/**
+	 * Get a value that changes whenever the rates may have changed, so views can skip redundant refreshes
+	 */
+	public long getRefreshStamp(long time)
+	{
+		while (true)
+		{
+			int stamp = lock.beginRead();
+			long bucket = activeTime(time) / BUCKET_MILLIS;
+			if (lock.validate(stamp))
+			{
+				return bucket;
+			}
+		}
+	}
+
+	/**
+	 * Read a rate consistently while the client thread may be updating it. Safe to call from any thread.
+	 */
+	private double readRate(int channel, long time, boolean ewma)
+	{
+		while (true)
+		{
+			int stamp = lock.beginRead();
+			double rate = ewma ? ewmaRate(channel, time) : windowRate(channel, time);
+			if (lock.validate(stamp))
+			{
+				return rate;
+			}
+		}
+	}
+
+	private long activeTime(long time)
+	{
+		return activeSince < 0 ? activeMillis : activeMillis + (time - activeSince);
+	}
+
+	private void add(int channel, long amount)
+	{
+		Window current = window;
+		current.buckets[(int) (currentBucket % current.bucketCount) * CHANNELS + channel] += amount;
+		windowSums[channel] += amount;
+	}
+
+	/**
+	 * Move the window forward, dropping the buckets that fell out of it
+	 */
+	private void advance(long now)
+	{
+		Window current = window;
+		long bucket = now / BUCKET_MILLIS;
+		long expired = Math.min(bucket - currentBucket, current.bucketCount);
+		for (long i = 1; i <= expired; i++)
+		{
+			int row = (int) ((currentBucket + i) % current.bucketCount) * CHANNELS;
+			for (int channel = 0; channel < CHANNELS; channel++)
+			{
+				windowSums[channel] -= current.buckets[row + channel];
+				current.buckets[row + channel] = 0;
+			}
+		}
+		currentBucket = Math.max(currentBucket, bucket);
+	}
+
+	private void decay(long now)
+	{
+		double factor = Math.exp(-(now - ewmaTime) / (double) EWMA_TIME_CONSTANT_MILLIS);
+		for (int channel = 0; channel < CHANNELS; channel++)
+		{
+			ewmaRates[channel] *= factor;
+		}
+		ewmaTime = now;
+	}
+
+	private double windowRate(int channel, long time)
+	{
+		long now = activeTime(time);
+		if (now <= 0)
+		{
+			return 0;
+		}
+
+		// Leave out buckets that expired since the last gain without modifying the window
+		Window current = window;
+		long sum = windowSums[channel];
+		long bucket = now / BUCKET_MILLIS;
+		long expired = Math.min(bucket - currentBucket, current.bucketCount);
+		for (long i = 1; i <= expired; i++)
+		{
+			sum -= current.buckets[(int) ((currentBucket + i) % current.bucketCount) * CHANNELS + channel];
+		}
+
+		return sum * MILLIS_PER_HOUR / Math.min(now, current.windowMillis);
+	}
+
+	private double ewmaRate(int channel, long time)
+	{
+		long now = activeTime(time);
+		return ewmaRates[channel] * Math.exp(-(now - ewmaTime) / (double) EWMA_TIME_CONSTANT_MILLIS) * MILLIS_PER_HOUR;
+	}
+}
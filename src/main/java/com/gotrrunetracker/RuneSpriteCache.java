@@ -0,0 +1,134 @@
+package com.gotrrunetracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.util.ImageUtil;
+
+import javax.inject.Singleton;
+import javax.swing.SwingUtilities;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Rune icons decoded and scaled once, shared by every view that draws them.
+ * <p>
+ * Icons are loaded on a background executor into images compatible with the screen, so drawing
+ * them is a straight copy. Views register a callback to be told on the EDT once they are ready.
+ */
+@Slf4j
+@Singleton
+public class RuneSpriteCache
+{
+	public static final int ICON_SIZE = 24;
+
+	private final BufferedImage[] sprites = new BufferedImage[RuneType.COUNT];
+	private final List<Runnable> pendingCallbacks = new ArrayList<>();
+	private boolean loading = false;
+	private volatile boolean loaded = false;
+
+	/**
+	 * Start loading the icons on the given executor, if not already loaded or loading
+	 */
+	public synchronized void load(Executor executor)
+	{
+		if (loading || loaded)
+		{
+			return;
+		}
+
+		loading = true;
+		executor.execute(this::loadSprites);
+	}
+
+	/**
+	 * Get the scaled icon for a rune, or null if it has not loaded or could not be loaded
+	 */
+	public BufferedImage getSprite(RuneType rune)
+	{
+		return loaded ? sprites[rune.ordinal()] : null;
+	}
+
+	public boolean isLoaded()
+	{
+		return loaded;
+	}
+
+	/**
+	 * Run a callback on the EDT once the icons are loaded, immediately if they already are
+	 */
+	public void whenLoaded(Runnable callback)
+	{
+		synchronized (this)
+		{
+			if (!loaded)
+			{
+				pendingCallbacks.add(callback);
+				return;
+			}
+		}
+
+		SwingUtilities.invokeLater(callback);
+	}
+
+	private void loadSprites()
+	{
+		GraphicsConfiguration configuration = GraphicsEnvironment.isHeadless() ? null
+			: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			RuneType rune = RuneType.fromOrdinal(i);
+			try
+			{
+				BufferedImage source = ImageUtil.loadImageResource(RuneSpriteCache.class, rune.getIconFile());
+				sprites[i] = scale(source, configuration);
+			}
+			catch (Exception e)
+			{
+				log.warn("Could not load icon for {}: {}", rune.getDisplayName(), rune.getIconFile());
+			}
+		}
+
+		List<Runnable> callbacks;
+		synchronized (this)
+		{
+			loaded = true;
+			loading = false;
+			callbacks = new ArrayList<>(pendingCallbacks);
+			pendingCallbacks.clear();
+		}
+
+		for (Runnable callback : callbacks)
+		{
+			SwingUtilities.invokeLater(callback);
+		}
+	}
+
+	private static BufferedImage scale(BufferedImage source, GraphicsConfiguration configuration)
+	{
+		BufferedImage scaled = configuration != null
+			? configuration.createCompatibleImage(ICON_SIZE, ICON_SIZE, Transparency.TRANSLUCENT)
+			: new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D graphics = scaled.createGraphics();
+		try
+		{
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			graphics.drawImage(source, 0, 0, ICON_SIZE, ICON_SIZE, null);
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+
+		return scaled;
+	}
+}
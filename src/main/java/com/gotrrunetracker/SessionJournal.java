@@ -0,0 +1,543 @@
+package com.gotrrunetracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only journal of the current session, so it survives client crashes and plugin reloads.
+ * <p>
+ * Every change to the manager is written as a fixed-width record to a memory-mapped file. The
+ * client thread only places records in a preallocated queue; a background thread copies them to the
+ * file through {@link #flush()}. Once the file fills up it is compacted into a new generation holding
+ * just the session totals.
+ * <p>
+ * A session is saved to the {@link SessionStore} before the reset that ends it is written, so a crash
+ * in between replays a session the store already has, which is then dropped instead of continued.
+ */
+@Slf4j
+public class SessionJournal implements GOTRRuneTrackerManager.Listener
+{
+	private static final int MAGIC = 0x474F5452; // "GOTR"
+	private static final int FORMAT_VERSION = 1;
+
+	// Header: magic, format version, committed record count, reserved
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT_OFFSET = 8;
+
+	// Record: header long (type, rune, location, count) followed by a value long
+	static final int RECORD_SIZE = 16;
+
+	private static final int MAX_RECORDS = 1 << 16;
+	private static final int COMPACT_THRESHOLD = MAX_RECORDS * 3 / 4;
+	private static final long FILE_SIZE = HEADER_SIZE + (long) MAX_RECORDS * RECORD_SIZE;
+
+	// Must be a power of two
+	private static final int QUEUE_CAPACITY = 1 << 12;
+
+	static final int TYPE_GAIN = 1;
+	static final int TYPE_LOCATION = 2;
+	static final int TYPE_RESET = 3;
+	static final int TYPE_RUNE_TOTAL = 4;
+	static final int TYPE_LOCATION_TOTAL = 5;
+
+	private static final int NO_ORDINAL = 0xFF;
+
+	private static final String FILE_PREFIX = "session-";
+	private static final String FILE_SUFFIX = ".journal";
+
+	/**
+	 * Where completed sessions are kept once they leave the journal
+	 */
+	public interface SessionStore
+	{
+		/**
+		 * Get whether the session that started at the given time has already been saved
+		 */
+		boolean isSaved(long sessionStartTime);
+
+		/**
+		 * Save a completed session. Called from the thread flushing the journal.
+		 */
+		void save(long sessionStartTime, long sessionEndTime, long[] runeCounts);
+	}
+
+	private final Path directory;
+	private final SessionStore sessionStore;
+
+	// Records queued by the client thread and drained by the writer, single producer single consumer
+	private final long[] queuedHeaders = new long[QUEUE_CAPACITY];
+	private final long[] queuedValues = new long[QUEUE_CAPACITY];
+	private volatile long queueWriteIndex = 0;
+	private volatile long queueReadIndex = 0;
+	private volatile boolean queueOverflowed = false;
+
+	// Writer state
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private Path file;
+	private long generation = 0;
+	private int recordCount = 0;
+
+	// Session rebuilt from the journal and kept current by the writer, so compaction never reads the manager
+	private final long[] runeCounts = new long[RuneType.COUNT];
+	private final long[] locationCounts = new long[GOTRLocation.COUNT];
+	private long sessionStartTime = 0;
+
+	public SessionJournal(Path directory, SessionStore sessionStore)
+	{
+		this.directory = directory;
+		this.sessionStore = sessionStore;
+	}
+
+	/**
+	 * Open the journal, replaying the newest generation on disk
+	 *
+	 * @return Whether a previous session was found
+	 */
+	public synchronized boolean open()
+	{
+		try
+		{
+			Files.createDirectories(directory);
+
+			Path latest = null;
+			long latestGeneration = -1;
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX))
+			{
+				for (Path candidate : files)
+				{
+					long candidateGeneration = parseGeneration(candidate);
+					if (candidateGeneration > latestGeneration)
+					{
+						latest = candidate;
+						latestGeneration = candidateGeneration;
+					}
+				}
+			}
+
+			boolean restored = latest != null && replay(latest);
+			generation = Math.max(latestGeneration, 0);
+
+			if (restored && sessionStore.isSaved(sessionStartTime))
+			{
+				// Saved but not yet reset when the client stopped, so it is already in the store
+				log.debug("GOTR session started at {} was already saved", sessionStartTime);
+				clearSession();
+				restored = false;
+			}
+
+			// Start from a compacted generation so the live file always has room
+			compact();
+			deleteOlderGenerations();
+			return restored;
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open GOTR session journal in {}", directory, e);
+			closeQuietly();
+			return false;
+		}
+	}
+
+	/**
+	 * Continue the replayed session in the manager, adding the runes the manager counted while the
+	 * journal was being opened, and queue the merged session to be written. Client thread only.
+	 */
+	public synchronized void adopt(GOTRRuneTrackerManager manager)
+	{
+		long start = manager.getSessionStartTime();
+		long[] runes = new long[RuneType.COUNT];
+		long[] locations = new long[GOTRLocation.COUNT];
+		manager.copyRuneCounts(runes);
+		for (int i = 0; i < locations.length; i++)
+		{
+			locations[i] = manager.getLocationCount(GOTRLocation.fromOrdinal(i));
+		}
+
+		if (sessionStartTime != 0)
+		{
+			start = sessionStartTime;
+			for (int i = 0; i < runes.length; i++)
+			{
+				runes[i] += runeCounts[i];
+			}
+			for (int i = 0; i < locations.length; i++)
+			{
+				locations[i] += locationCounts[i];
+			}
+			manager.restore(start, runes, locations);
+		}
+
+		// The merged totals replace the replayed session on the next flush
+		enqueue(TYPE_RESET, NO_ORDINAL, NO_ORDINAL, 0, start);
+		for (int i = 0; i < runes.length; i++)
+		{
+			if (runes[i] != 0)
+			{
+				enqueue(TYPE_RUNE_TOTAL, i, NO_ORDINAL, 0, runes[i]);
+			}
+		}
+		for (int i = 0; i < locations.length; i++)
+		{
+			if (locations[i] != 0)
+			{
+				enqueue(TYPE_LOCATION_TOTAL, NO_ORDINAL, i, 0, locations[i]);
+			}
+		}
+	}
+
+	@Override
+	public void onRunesAdded(RuneType rune, GOTRLocation location, int count, long time)
+	{
+		enqueue(TYPE_GAIN, rune.ordinal(), location == null ? NO_ORDINAL : location.ordinal(), count, time);
+	}
+
+	@Override
+	public void onLocationChanged(GOTRLocation location, long time)
+	{
+		enqueue(TYPE_LOCATION, NO_ORDINAL, location == null ? NO_ORDINAL : location.ordinal(), 0, time);
+	}
+
+	@Override
+	public void onReset(long sessionStartTime)
+	{
+		enqueue(TYPE_RESET, NO_ORDINAL, NO_ORDINAL, 0, sessionStartTime);
+	}
+
+	private void enqueue(int type, int rune, int location, int count, long value)
+	{
+		long write = queueWriteIndex;
+		if (write - queueReadIndex >= QUEUE_CAPACITY)
+		{
+			// Never block the caller; the writer logs the dropped records
+			queueOverflowed = true;
+			return;
+		}
+
+		int slot = (int) (write & (QUEUE_CAPACITY - 1));
+		queuedHeaders[slot] = encodeHeader(type, rune, location, count);
+		queuedValues[slot] = value;
+		queueWriteIndex = write + 1;
+	}
+
+	/**
+	 * Write queued records to the journal file. Must not be called from the client thread.
+	 */
+	public synchronized void flush()
+	{
+		if (queueOverflowed)
+		{
+			queueOverflowed = false;
+			log.warn("GOTR session journal queue overflowed, some changes were not saved");
+		}
+
+		long read = queueReadIndex;
+		long write = queueWriteIndex;
+		if (read == write)
+		{
+			return;
+		}
+
+		for (; read < write; read++)
+		{
+			int slot = (int) (read & (QUEUE_CAPACITY - 1));
+			long header = queuedHeaders[slot];
+			long value = queuedValues[slot];
+			if ((int) (header >>> 56) == TYPE_RESET)
+			{
+				saveSession(value);
+			}
+			apply(header, value);
+
+			if (buffer != null)
+			{
+				if (recordCount >= MAX_RECORDS)
+				{
+					// Totals already include this record, so it is covered by the compacted generation
+					compactSafely();
+					continue;
+				}
+
+				writeRecord(buffer, recordCount++, header, value);
+			}
+		}
+		queueReadIndex = read;
+
+		if (buffer != null)
+		{
+			buffer.putInt(COUNT_OFFSET, recordCount);
+
+			if (recordCount >= COMPACT_THRESHOLD)
+			{
+				compactSafely();
+			}
+		}
+	}
+
+	/**
+	 * Save the current session before the reset starting the next one is written
+	 */
+	private void saveSession(long nextStartTime)
+	{
+		// Resetting to the same start continues the session instead of completing it
+		if (sessionStartTime == 0 || nextStartTime == sessionStartTime)
+		{
+			return;
+		}
+
+		for (long count : runeCounts)
+		{
+			if (count != 0)
+			{
+				sessionStore.save(sessionStartTime, nextStartTime, runeCounts);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Flush any queued records and release the journal file
+	 */
+	public synchronized void close()
+	{
+		flush();
+		if (buffer != null)
+		{
+			buffer.force();
+		}
+		closeQuietly();
+	}
+
+	private boolean replay(Path source) throws IOException
+	{
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ))
+		{
+			// A record count the file can never hold means the header is damaged
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (in.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION
+				|| header.getInt(COUNT_OFFSET) < 0 || header.getInt(COUNT_OFFSET) > MAX_RECORDS)
+			{
+				log.warn("Ignoring unreadable GOTR session journal {}", source);
+				return false;
+			}
+
+			int committed = header.getInt(COUNT_OFFSET);
+			ByteBuffer records = ByteBuffer.allocate(committed * RECORD_SIZE);
+			in.read(records, HEADER_SIZE);
+			records.flip();
+
+			int replayed = 0;
+			for (; replayed < committed && records.remaining() >= RECORD_SIZE; replayed++)
+			{
+				long recordHeader = records.getLong();
+				long value = records.getLong();
+				if (!apply(recordHeader, value))
+				{
+					log.warn("GOTR session journal {} is corrupt after {} records", source, replayed);
+					break;
+				}
+			}
+
+			log.debug("Replayed {} records from {}", replayed, source);
+			return sessionStartTime != 0;
+		}
+	}
+
+	/**
+	 * Apply a record to the rebuilt session
+	 *
+	 * @return Whether the record was valid
+	 */
+	private boolean apply(long header, long value)
+	{
+		int type = (int) (header >>> 56);
+		int rune = (int) (header >>> 48) & 0xFF;
+		int location = (int) (header >>> 40) & 0xFF;
+		int count = (int) header;
+
+		switch (type)
+		{
+			case TYPE_GAIN:
+				if (rune >= RuneType.COUNT)
+				{
+					return false;
+				}
+				runeCounts[rune] += count;
+				if (location < GOTRLocation.COUNT)
+				{
+					locationCounts[location] += count;
+				}
+				return true;
+			case TYPE_LOCATION:
+				return true;
+			case TYPE_RESET:
+				clearSession();
+				sessionStartTime = value;
+				return true;
+			case TYPE_RUNE_TOTAL:
+				if (rune >= RuneType.COUNT)
+				{
+					return false;
+				}
+				runeCounts[rune] = value;
+				return true;
+			case TYPE_LOCATION_TOTAL:
+				if (location >= GOTRLocation.COUNT)
+				{
+					return false;
+				}
+				locationCounts[location] = value;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void clearSession()
+	{
+		Arrays.fill(runeCounts, 0);
+		Arrays.fill(locationCounts, 0);
+		sessionStartTime = 0;
+	}
+
+	private void compactSafely()
+	{
+		try
+		{
+			compact();
+			deleteOlderGenerations();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to compact GOTR session journal", e);
+			closeQuietly();
+		}
+	}
+
+	/**
+	 * Start a new generation containing only the current session totals
+	 */
+	private void compact() throws IOException
+	{
+		Path next = directory.resolve(FILE_PREFIX + (generation + 1) + FILE_SUFFIX);
+		FileChannel nextChannel = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer nextBuffer = nextChannel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+		int count = 0;
+		if (sessionStartTime != 0)
+		{
+			writeRecord(nextBuffer, count++, encodeHeader(TYPE_RESET, NO_ORDINAL, NO_ORDINAL, 0), sessionStartTime);
+			for (int i = 0; i < runeCounts.length; i++)
+			{
+				if (runeCounts[i] != 0)
+				{
+					writeRecord(nextBuffer, count++, encodeHeader(TYPE_RUNE_TOTAL, i, NO_ORDINAL, 0), runeCounts[i]);
+				}
+			}
+			for (int i = 0; i < locationCounts.length; i++)
+			{
+				if (locationCounts[i] != 0)
+				{
+					writeRecord(nextBuffer, count++, encodeHeader(TYPE_LOCATION_TOTAL, NO_ORDINAL, i, 0), locationCounts[i]);
+				}
+			}
+		}
+
+		nextBuffer.putInt(0, MAGIC);
+		nextBuffer.putInt(4, FORMAT_VERSION);
+		nextBuffer.putInt(COUNT_OFFSET, count);
+		nextBuffer.force();
+
+		// The new generation is complete, so it can replace the old one
+		closeQuietly();
+		channel = nextChannel;
+		buffer = nextBuffer;
+		file = next;
+		generation++;
+		recordCount = count;
+
+		log.debug("Compacted GOTR session journal into {}", next);
+	}
+
+	private void deleteOlderGenerations()
+	{
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX))
+		{
+			for (Path candidate : files)
+			{
+				if (parseGeneration(candidate) < generation)
+				{
+					try
+					{
+						Files.deleteIfExists(candidate);
+					}
+					catch (IOException e)
+					{
+						// Still mapped on some platforms, it will be removed on the next start
+						log.debug("Unable to delete old GOTR session journal {}", candidate);
+					}
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.debug("Unable to list GOTR session journals in {}", directory, e);
+		}
+	}
+
+	private void closeQuietly()
+	{
+		if (channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (IOException e)
+			{
+				log.debug("Error closing GOTR session journal {}", file, e);
+			}
+		}
+
+		channel = null;
+		buffer = null;
+	}
+
+	private static void writeRecord(ByteBuffer target, int index, long header, long value)
+	{
+		int position = HEADER_SIZE + index * RECORD_SIZE;
+		target.putLong(position + 8, value);
+		target.putLong(position, header);
+	}
+
+	private static long encodeHeader(int type, int rune, int location, int count)
+	{
+		return ((long) type << 56)
+			| ((long) (rune & 0xFF) << 48)
+			| ((long) (location & 0xFF) << 40)
+			| (count & 0xFFFFFFFFL);
+	}
+
+	private static long parseGeneration(Path path)
+	{
+		String name = path.getFileName().toString();
+		try
+		{
+			return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+		}
+		catch (NumberFormatException | IndexOutOfBoundsException e)
+		{
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.gotrrunetracker;
+
+/**
+ * Runs timed actions at wall-clock deadlines.
+ * <p>
+ * Timers are hashed into a ring of slots by deadline, so scheduling and cancelling are O(1) and
+ * advancing the wheel only visits the slots whose time has passed. Deadlines are wall-clock times,
+ * so a timer that came due while the wheel was not being advanced, such as during a logout, fires on
+ * the next advance. Not thread safe, used from the client thread.
+ */
+public class TimerWheel
+{
+	/**
+	 * A reusable timed action, scheduled on at most one wheel at a time
+	 */
+	public static final class Timer
+	{
+		private final Runnable action;
+		private TimerWheel wheel;
+		private long deadline;
+		private long deadlineTick;
+		private Timer previous;
+		private Timer next;
+
+		public Timer(Runnable action)
+		{
+			this.action = action;
+		}
+
+		public boolean isScheduled()
+		{
+			return wheel != null;
+		}
+
+		/**
+		 * Get when the timer is due, in epoch milliseconds
+		 */
+		public long getDeadline()
+		{
+			return deadline;
+		}
+	}
+
+	private final long tickMillis;
+	private final Timer[] slots;
+	private final int mask;
+
+	// Last tick whose slot has been processed
+	private long currentTick;
+
+	/**
+	 * @param tickMillis Resolution of the wheel, timers fire up to this late
+	 * @param slotCount  Number of slots, must be a power of two
+	 * @param now        Current time in epoch milliseconds
+	 */
+	public TimerWheel(long tickMillis, int slotCount, long now)
+	{
+		if (Integer.bitCount(slotCount) != 1)
+		{
+			throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+		}
+
+		this.tickMillis = tickMillis;
+		this.slots = new Timer[slotCount];
+		this.mask = slotCount - 1;
+		this.currentTick = now / tickMillis;
+	}
+
+	/**
+	 * Schedule a timer, replacing its previous deadline if it was already scheduled
+	 *
+	 * @param deadline When to run the timer, in epoch milliseconds
+	 */
+	public void schedule(Timer timer, long deadline)
+	{
+		cancel(timer);
+
+		// Round up so the timer never fires early, and never into a slot that was already processed
+		long tick = Math.max((deadline + tickMillis - 1) / tickMillis, currentTick + 1);
+
+		int slot = (int) (tick & mask);
+		timer.wheel = this;
+		timer.deadline = deadline;
+		timer.deadlineTick = tick;
+		timer.previous = null;
+		timer.next = slots[slot];
+		if (timer.next != null)
+		{
+			timer.next.previous = timer;
+		}
+		slots[slot] = timer;
+	}
+
+	public void cancel(Timer timer)
+	{
+		if (timer.wheel != this)
+		{
+			return;
+		}
+
+		if (timer.previous != null)
+		{
+			timer.previous.next = timer.next;
+		}
+		else
+		{
+			slots[(int) (timer.deadlineTick & mask)] = timer.next;
+		}
+
+		if (timer.next != null)
+		{
+			timer.next.previous = timer.previous;
+		}
+
+		timer.wheel = null;
+		timer.previous = null;
+		timer.next = null;
+	}
+
+	/**
+	 * Run every timer that is due. Cheap when no slot boundary has passed, so it can be called every tick.
+	 *
+	 * @param now Current time in epoch milliseconds
+	 */
+	public void advance(long now)
+	{
+		long nowTick = now / tickMillis;
+		if (nowTick <= currentTick)
+		{
+			return;
+		}
+
+		// After a long gap every slot is due at most once, timers for later laps stay where they are
+		long last = Math.min(nowTick, currentTick + slots.length);
+		long firstTick = currentTick;
+		currentTick = nowTick;
+
+		for (long tick = firstTick + 1; tick <= last; tick++)
+		{
+			int slot = (int) (tick & mask);
+			Timer timer = slots[slot];
+			while (timer != null)
+			{
+				if (timer.deadlineTick > nowTick)
+				{
+					timer = timer.next;
+					continue;
+				}
+
+				// The action may cancel or reschedule any timer in this slot, so start over from its head.
+				// Anything scheduled meanwhile is due after nowTick, so this ends.
+				cancel(timer);
+				timer.action.run();
+				timer = slots[slot];
+			}
+		}
+	}
+}
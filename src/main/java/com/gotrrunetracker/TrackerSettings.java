@@ -0,0 +1,52 @@
+package com.gotrrunetracker;
+
+import lombok.Getter;
+
+/**
+ * An immutable copy of {@link GOTRRuneTrackerConfig}.
+ * <p>
+ * Reading the config goes through the config manager's proxy, so the plugin reads this copy on its
+ * hot paths and only rebuilds it when the config changes.
+ */
+@Getter
+public final class TrackerSettings
+{
+	private final boolean showLoadMessage;
+	private final boolean showRegionMessages;
+	private final boolean showResetMessage;
+	private final boolean showRuneGainedMessages;
+	private final boolean resetOnNewSession;
+
+	// Auto-reset is off when disabled or set to 0 minutes
+	private final boolean autoReset;
+	private final int autoResetMinutes;
+
+	private final int rateWindowMinutes;
+	private final boolean showOverlay;
+
+	private TrackerSettings(GOTRRuneTrackerConfig config)
+	{
+		showLoadMessage = config.showLoadMessage();
+		showRegionMessages = config.showRegionMessages();
+		showResetMessage = config.showResetMessage();
+		showRuneGainedMessages = config.showRuneGainedMessages();
+		resetOnNewSession = config.resetOnNewSession();
+		autoResetMinutes = Math.max(0, config.autoResetTimeMinutes());
+		autoReset = config.enableAutoReset() && autoResetMinutes > 0;
+		rateWindowMinutes = config.rateWindowMinutes();
+		showOverlay = config.showOverlay();
+	}
+
+	public static TrackerSettings from(GOTRRuneTrackerConfig config)
+	{
+		return new TrackerSettings(config);
+	}
+
+	/**
+	 * Get how long the player must be away from GOTR before the session is reset
+	 */
+	public long getAutoResetMillis()
+	{
+		return autoResetMinutes * 60_000L;
+	}
+}
@@ -0,0 +1,203 @@
+package com.gotrrunetracker;
+
+import net.runelite.api.Item;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation budgets for the per-tick paths, run through the stubbed client of {@link ReplaySimulator}
+ * with every listener the plugin attaches. The stubs allocate where the client does, such as a new
+ * WorldPoint for each location read, and nowhere else.
+ * <p>
+ * Each path is warmed up, then run for thousands of ticks while the thread's allocation counter is
+ * read, so garbage added to the tick loop fails the build. Setting up a path may allocate freely.
+ */
+public class AllocationBudgetTest
+{
+	private static final int WARMUP_TICKS = 20_000;
+	private static final int MEASURED_TICKS = 10_000;
+
+	private static final int TEMPLE = GOTRLocation.TEMPLE_OF_THE_EYE.getRegionId();
+	private static final int AIR_ALTAR = GOTRLocation.AIR_ALTAR.getRegionId();
+	private static final int LUMBRIDGE = 12850;
+
+	private static final int GUARDIAN_FRAGMENTS = 26878;
+	private static final int GUARDIAN_ESSENCE = 26879;
+	private static final int INVENTORY_SIZE = 28;
+
+	// A craft of a full inventory and pouches, past the boxed Integer cache
+	private static final int RUNES_PER_CRAFT = 268;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private com.sun.management.ThreadMXBean threads;
+	private ReplaySimulator simulator;
+
+	// Air runes in the inventory for the core craft path
+	private int airRunes = 0;
+
+	@Before
+	public void setUp()
+	{
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		simulator = new ReplaySimulator(folder.getRoot().toPath());
+	}
+
+	@Test
+	public void idleTickInTemple()
+	{
+		simulator.login(TEMPLE);
+		assertBudget("idle tick in the temple", 0, simulator::tick);
+	}
+
+	@Test
+	public void idleTickAtAltar()
+	{
+		simulator.login(AIR_ALTAR);
+		assertBudget("idle tick at an altar", 0, simulator::tick);
+	}
+
+	@Test
+	public void inventoryChangeInTemple()
+	{
+		// Mining fragments, which is never diffed
+		simulator.login(TEMPLE);
+		simulator.setSlot(0, GUARDIAN_FRAGMENTS, 10);
+		assertBudget("inventory change in the temple", 0, () ->
+		{
+			simulator.inventoryChanged();
+			simulator.tick();
+		});
+	}
+
+	@Test
+	public void inventoryChangeAtAltar()
+	{
+		// Every change at an altar is scanned to keep the baseline for the next craft current
+		simulator.login(AIR_ALTAR);
+		simulator.setSlot(0, RuneType.AIR.getItemId(), 40);
+		for (int slot = 1; slot < INVENTORY_SIZE; slot++)
+		{
+			simulator.setSlot(slot, GUARDIAN_ESSENCE, 1);
+		}
+		simulator.tick();
+
+		assertBudget("inventory change at an altar", 0, () ->
+		{
+			simulator.inventoryChanged();
+			simulator.tick();
+		});
+	}
+
+	@Test
+	public void dormantOutsideGotr()
+	{
+		simulator.login(LUMBRIDGE);
+		simulator.setSlot(0, GUARDIAN_FRAGMENTS, 10);
+		assertBudget("dormant tick outside GOTR", 0, () ->
+		{
+			simulator.inventoryChanged();
+			simulator.tick();
+		});
+	}
+
+	@Test
+	public void craftAtAltar()
+	{
+		// Crafting, then banking the runes and waiting out the craft window before the next craft
+		simulator.login(AIR_ALTAR);
+		for (int slot = 1; slot < INVENTORY_SIZE; slot++)
+		{
+			simulator.setSlot(slot, GUARDIAN_ESSENCE, 1);
+		}
+		simulator.tick();
+
+		Item noRunes = new Item(-1, 0);
+		Item crafted = new Item(RuneType.AIR.getItemId(), RUNES_PER_CRAFT);
+		assertBudget("craft at an altar", 0, () ->
+		{
+			simulator.animate(RuneTrackerCore.CRAFT_ANIMATION);
+			simulator.setItem(0, crafted);
+			simulator.inventoryChanged();
+			simulator.tick();
+
+			simulator.setItem(0, noRunes);
+			simulator.inventoryChanged();
+			for (int i = 0; i < RuneTrackerCore.CRAFT_WINDOW_TICKS; i++)
+			{
+				simulator.tick();
+			}
+		});
+
+		// Every craft went through the manager to the listeners
+		assertEquals((long) RUNES_PER_CRAFT * (WARMUP_TICKS + MEASURED_TICKS),
+			simulator.getManager().getRuneCount(RuneType.AIR));
+	}
+
+	@Test
+	public void coreCraftAtAltar()
+	{
+		// The core on its own, without the plugin or listeners
+		RuneTrackerCore core = new RuneTrackerCore(new GOTRRuneTrackerManager(), null);
+		core.onRegionChanged(AIR_ALTAR);
+		scan(core);
+
+		assertBudget("craft at an altar", 0, () ->
+		{
+			core.onLocalPlayerAnimation(RuneTrackerCore.CRAFT_ANIMATION);
+			airRunes += RUNES_PER_CRAFT;
+			scan(core);
+			core.onTick();
+		});
+	}
+
+	private void scan(RuneTrackerCore core)
+	{
+		core.beginScan();
+		core.accumulate(RuneType.AIR.getItemId(), airRunes);
+		for (int slot = 1; slot < INVENTORY_SIZE; slot++)
+		{
+			core.accumulate(GUARDIAN_ESSENCE, 1);
+		}
+		core.endScan();
+	}
+
+	/**
+	 * Run a tick until it is compiled, then fail if it allocates more than the budget per tick in total
+	 */
+	private void assertBudget(String path, long bytesPerTick, Runnable tick)
+	{
+		for (int i = 0; i < WARMUP_TICKS; i++)
+		{
+			tick.run();
+		}
+
+		// Reading the counter may allocate, measure that once so it is not charged to the path
+		long thread = Thread.currentThread().getId();
+		long first = threads.getThreadAllocatedBytes(thread);
+		long overhead = threads.getThreadAllocatedBytes(thread) - first;
+
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < MEASURED_TICKS; i++)
+		{
+			tick.run();
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+		assertTrue(String.format("%s allocated %,d bytes over %,d ticks against a budget of %d per tick",
+			path, allocated, MEASURED_TICKS, bytesPerTick), allocated <= bytesPerTick * MEASURED_TICKS);
+	}
+}
@@ -0,0 +1,162 @@
+package com.gotrrunetracker;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LifetimeStatsStoreTest
+{
+	private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private LifetimeStatsStore store;
+
+	@Before
+	public void setUp()
+	{
+		directory = folder.getRoot().toPath();
+		store = new LifetimeStatsStore(ZoneOffset.UTC);
+		store.open(directory);
+	}
+
+	@Test
+	public void insertsDaysOutOfOrder()
+	{
+		add(DAY, RuneType.AIR, 200);
+		add(DAY.plusDays(2), RuneType.AIR, 300);
+
+		// The clock went backwards, into the middle and then before the first day
+		add(DAY.plusDays(1), RuneType.AIR, 400);
+		add(DAY.minusDays(1), RuneType.AIR, 800);
+		add(DAY.plusDays(1), RuneType.AIR, 1600);
+
+		assertDay(DAY.minusDays(1), 800);
+		assertDay(DAY, 200);
+		assertDay(DAY.plusDays(1), 2000);
+		assertDay(DAY.plusDays(2), 300);
+		assertEquals(3300, total(RuneType.AIR));
+		assertEquals(5, store.getSessionCount());
+
+		store.open(directory);
+		assertDay(DAY.minusDays(1), 800);
+		assertDay(DAY.plusDays(1), 2000);
+		assertEquals(3300, total(RuneType.AIR));
+	}
+
+	@Test
+	public void queryRangeAddsTheDaysInside()
+	{
+		add(DAY, RuneType.FIRE, 150);
+		add(DAY.plusDays(3), RuneType.FIRE, 250);
+		add(DAY.plusDays(3), RuneType.WATER, 175);
+		add(DAY.plusDays(9), RuneType.FIRE, 350);
+
+		long[] counts = new long[RuneType.COUNT];
+		assertTrue(store.queryRange(DAY, DAY.plusDays(3), counts));
+		assertEquals(400, counts[RuneType.FIRE.ordinal()]);
+		assertEquals(175, counts[RuneType.WATER.ordinal()]);
+
+		// Days without sessions at either end
+		assertTrue(store.queryRange(DAY.plusDays(1), DAY.plusDays(20), counts));
+		assertEquals(600, counts[RuneType.FIRE.ordinal()]);
+
+		assertTrue(store.queryRange(DAY.minusDays(30), DAY.minusDays(1), counts));
+		assertEquals(0, counts[RuneType.FIRE.ordinal()]);
+		assertTrue(store.queryRange(DAY.plusDays(10), DAY.plusDays(30), counts));
+		assertEquals(0, counts[RuneType.FIRE.ordinal()]);
+	}
+
+	@Test
+	public void sameSessionIsAddedOnce()
+	{
+		long start = time(DAY, 10);
+		long[] counts = new long[RuneType.COUNT];
+		counts[RuneType.BLOOD.ordinal()] = 220;
+		store.addSession(start, start + 3_600_000, counts);
+		assertTrue(store.isLastSession(start));
+
+		// Saved again after a crash before the journal recorded the reset
+		store.addSession(start, start + 3_600_000, counts);
+		assertEquals(220, total(RuneType.BLOOD));
+		assertEquals(1, store.getSessionCount());
+
+		store.open(directory);
+		assertTrue(store.isLastSession(start));
+		assertFalse(store.isLastSession(start + 1));
+	}
+
+	@Test
+	public void interruptedDayUpdateIsRebuiltOnOpen() throws IOException
+	{
+		add(DAY, RuneType.AIR, 200);
+		add(DAY, RuneType.AIR, 300);
+		store.close();
+
+		// As if the header committed the second session, but its day row was never updated
+		try (FileChannel stats = FileChannel.open(directory.resolve(LifetimeStatsStore.STATS_FILE),
+			StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer row = ByteBuffer.allocate(LifetimeStatsStore.DAY_SIZE);
+			stats.read(row, LifetimeStatsStore.HEADER_SIZE);
+			row.putInt(4, 1);
+			row.putLong(8 + RuneType.AIR.ordinal() * 8, 200);
+			row.flip();
+			stats.write(row, LifetimeStatsStore.HEADER_SIZE);
+
+			ByteBuffer pendingDay = ByteBuffer.allocate(4);
+			pendingDay.putInt(0, (int) DAY.toEpochDay());
+			stats.write(pendingDay, LifetimeStatsStore.PENDING_DAY_OFFSET);
+		}
+
+		store.open(directory);
+		assertDay(DAY, 500);
+		assertEquals(500, total(RuneType.AIR));
+
+		store.open(directory);
+		assertDay(DAY, 500);
+	}
+
+	private void add(LocalDate day, RuneType rune, long count)
+	{
+		// Distinct start times, the store takes a repeated start as the same session
+		long start = time(day, 9) + store.getSessionCount();
+		long[] counts = new long[RuneType.COUNT];
+		counts[rune.ordinal()] = count;
+		store.addSession(start, time(day, 12), counts);
+	}
+
+	private void assertDay(LocalDate day, long airRunes)
+	{
+		long[] counts = new long[RuneType.COUNT];
+		assertTrue(store.queryRange(day, day, counts));
+		assertEquals(day.toString(), airRunes, counts[RuneType.AIR.ordinal()]);
+	}
+
+	private long total(RuneType rune)
+	{
+		long[] totals = new long[RuneType.COUNT];
+		store.copyTotals(totals);
+		return totals[rune.ordinal()];
+	}
+
+	private static long time(LocalDate day, int hour)
+	{
+		return day.atTime(hour, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+}
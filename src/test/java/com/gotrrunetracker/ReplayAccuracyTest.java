@@ -0,0 +1,48 @@
+package com.gotrrunetracker;
+
+import com.gotrrunetracker.replay.GeneratedScenarios;
+import com.gotrrunetracker.replay.ReplayScenario;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays generated sessions through the plugin and checks every rune crafted was counted, and nothing else
+ */
+public class ReplayAccuracyTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void session()
+	{
+		assertCounted(GeneratedScenarios.session(1, 1));
+	}
+
+	@Test
+	public void sessionWithTrips()
+	{
+		// Leaving GOTR after every game, so the plugin goes dormant and wakes again
+		assertCounted(GeneratedScenarios.sessionWithTrips(2, 4));
+	}
+
+	private void assertCounted(ReplayScenario scenario)
+	{
+		ReplaySimulator simulator = new ReplaySimulator(folder.getRoot().toPath());
+		scenario.play(simulator);
+
+		long expectedTotal = 0;
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			RuneType rune = RuneType.fromOrdinal(i);
+			assertEquals(scenario.getName() + ": " + rune.getDisplayName(),
+				simulator.getExpectedCount(rune), simulator.getManager().getRuneCount(rune));
+			expectedTotal += simulator.getExpectedCount(rune);
+		}
+		assertTrue(scenario.getName() + " crafted nothing", expectedTotal > 0);
+	}
+}
@@ -0,0 +1,564 @@
+package com.gotrrunetracker;
+
+import com.gotrrunetracker.replay.GeneratedScenarios;
+import com.gotrrunetracker.replay.RecordedScenario;
+import com.gotrrunetracker.replay.ReplayDriver;
+import com.gotrrunetracker.replay.ReplayScenario;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Node;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.client.callback.ClientThread;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link GOTRRuneTrackerPlugin} headlessly with a stubbed {@link Client}, as fast as the handlers allow.
+ * <p>
+ * Run with recording files as arguments to replay them, or without arguments to replay generated sessions.
+ * Work the plugin hands to its executor or client thread runs on the simulator's thread after each event,
+ * with delays measured in simulated ticks. The plugin is started through {@link GOTRRuneTrackerPlugin#startTracking},
+ * so every listener it attaches in the client is attached here too, saving to the given directory.
+ */
+public class ReplaySimulator implements ReplayDriver
+{
+	private static final int INVENTORY_SIZE = 28;
+	private static final long TICK_MILLIS = 600;
+	private static final long ACCOUNT_HASH = 1;
+
+	/**
+	 * The simulated inventory, written by hand rather than proxied so reading it never boxes or copies
+	 */
+	private final class InventoryStub implements ItemContainer
+	{
+		@Override
+		public int getId()
+		{
+			return InventoryID.INVENTORY.getId();
+		}
+
+		@Override
+		public Item[] getItems()
+		{
+			return inventory;
+		}
+
+		@Override
+		public Item getItem(int slot)
+		{
+			return slot >= 0 && slot < INVENTORY_SIZE && inventory[slot].getId() != -1 ? inventory[slot] : null;
+		}
+
+		@Override
+		public boolean contains(int itemId)
+		{
+			return find(itemId) != -1;
+		}
+
+		@Override
+		public int count(int itemId)
+		{
+			int count = 0;
+			for (Item item : inventory)
+			{
+				if (item.getId() == itemId)
+				{
+					count += item.getQuantity();
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public int size()
+		{
+			return INVENTORY_SIZE;
+		}
+
+		@Override
+		public int count()
+		{
+			int count = 0;
+			for (Item item : inventory)
+			{
+				if (item.getId() != -1)
+				{
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public int find(int itemId)
+		{
+			for (int slot = 0; slot < INVENTORY_SIZE; slot++)
+			{
+				if (inventory[slot].getId() == itemId)
+				{
+					return slot;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Node getNext()
+		{
+			return null;
+		}
+
+		@Override
+		public Node getPrevious()
+		{
+			return null;
+		}
+
+		@Override
+		public long getHash()
+		{
+			return InventoryID.INVENTORY.getId();
+		}
+	}
+
+	/**
+	 * A task given to the stub executor with a delay
+	 */
+	private static final class DelayedTask
+	{
+		private final Runnable task;
+		private final long periodMillis;
+		private long dueTime;
+		private boolean cancelled = false;
+
+		DelayedTask(Runnable task, long dueTime, long periodMillis)
+		{
+			this.task = task;
+			this.dueTime = dueTime;
+			this.periodMillis = periodMillis;
+		}
+	}
+
+	private final GOTRRuneTrackerPlugin plugin;
+	private final GOTRRuneTrackerManager manager;
+
+	// Simulated client state
+	private GameState gameState = GameState.LOGIN_SCREEN;
+	private int playerRegion = -1;
+
+	// Boxed once per animation, so the player stub only allocates when the client would
+	private static final Integer NO_ANIMATION = -1;
+	private Integer lastAnimation = NO_ANIMATION;
+	private Integer playerAnimation = NO_ANIMATION;
+	private final Item[] inventory = new Item[INVENTORY_SIZE];
+	private final ItemContainer inventoryContainer;
+	private final Client client;
+	private final Player player;
+	private int chatMessages = 0;
+
+	// Simulated executor and client thread
+	private final ArrayDeque<Runnable> pendingTasks = new ArrayDeque<>();
+	private final List<DelayedTask> delayedTasks = new ArrayList<>();
+	private long time = 0;
+
+	// Reused, so the simulator itself does not allocate on the tick and inventory paths
+	private final GameTick gameTick = new GameTick();
+	private final AnimationChanged animationEvent = new AnimationChanged();
+	private final ItemContainerChanged inventoryEvent;
+	private final long[] expectedCounts = new long[RuneType.COUNT];
+	private long ticks = 0;
+
+	private final LatencyHistogram tickStats = new LatencyHistogram("onGameTick");
+	private final LatencyHistogram inventoryStats = new LatencyHistogram("onItemContainerChanged");
+	private final LatencyHistogram gameStateStats = new LatencyHistogram("onGameStateChanged");
+
+	/**
+	 * @param trackerDirectory Where the plugin saves the simulated account's session and lifetime stats
+	 */
+	public ReplaySimulator(Path trackerDirectory)
+	{
+		Arrays.fill(inventory, new Item(-1, 0));
+
+		inventoryContainer = new InventoryStub();
+		inventoryEvent = new ItemContainerChanged(InventoryID.INVENTORY.getId(), inventoryContainer);
+
+		player = stub(Player.class, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "getWorldLocation":
+					// A new point on every call, as the client creates one from the player's coordinates
+					return worldPointInRegion(playerRegion);
+				case "getAnimation":
+					return playerAnimation;
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+
+		animationEvent.setActor(player);
+
+		client = stub(Client.class, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "getGameState":
+					return gameState;
+				case "getLocalPlayer":
+					return gameState == GameState.LOGGED_IN ? player : null;
+				case "getItemContainer":
+					return isInventory(args[0]) ? inventoryContainer : null;
+				case "getAccountHash":
+					return ACCOUNT_HASH;
+				case "addChatMessage":
+					chatMessages++;
+					return null;
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+
+		ScheduledExecutorService executor = stub(ScheduledExecutorService.class, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "execute":
+					pendingTasks.add((Runnable) args[0]);
+					return null;
+				case "schedule":
+					// The plugin only schedules Runnables
+					return schedule((Runnable) args[0], ((TimeUnit) args[2]).toMillis((Long) args[1]), 0);
+				case "scheduleWithFixedDelay":
+				case "scheduleAtFixedRate":
+					TimeUnit unit = (TimeUnit) args[3];
+					return schedule((Runnable) args[0], unit.toMillis((Long) args[1]), unit.toMillis((Long) args[2]));
+				default:
+					throw new UnsupportedOperationException("Stub executor does not support " + method.getName());
+			}
+		});
+
+		ClientThread clientThread = new ClientThread()
+		{
+			@Override
+			public void invokeLater(Runnable task)
+			{
+				pendingTasks.add(task);
+			}
+		};
+
+		GOTRRuneTrackerConfig config = new GOTRRuneTrackerConfig()
+		{
+		};
+		plugin = new GOTRRuneTrackerPlugin(client, clientThread, executor, config, new RuneSpriteCache());
+		plugin.startTracking(trackerDirectory);
+		manager = plugin.getManager();
+		runPendingTasks();
+	}
+
+	public GOTRRuneTrackerPlugin getPlugin()
+	{
+		return plugin;
+	}
+
+	public GOTRRuneTrackerManager getManager()
+	{
+		return manager;
+	}
+
+	@Override
+	public void login(int regionId)
+	{
+		setGameState(GameState.LOGGING_IN);
+		playerRegion = regionId;
+		setGameState(GameState.LOGGED_IN);
+	}
+
+	@Override
+	public void logout()
+	{
+		setGameState(GameState.LOGIN_SCREEN);
+	}
+
+	@Override
+	public void changeRegion(int regionId)
+	{
+		setGameState(GameState.LOADING);
+		playerRegion = regionId;
+		setGameState(GameState.LOGGED_IN);
+	}
+
+	@Override
+	public void tick()
+	{
+		ticks++;
+		long start = System.nanoTime();
+		plugin.onGameTick(gameTick);
+		tickStats.record(System.nanoTime() - start);
+
+		time += TICK_MILLIS;
+		for (int i = 0; i < delayedTasks.size(); i++)
+		{
+			DelayedTask delayed = delayedTasks.get(i);
+			if (delayed.cancelled)
+			{
+				delayedTasks.remove(i--);
+			}
+			else if (delayed.dueTime <= time)
+			{
+				pendingTasks.add(delayed.task);
+				if (delayed.periodMillis > 0)
+				{
+					delayed.dueTime += delayed.periodMillis;
+				}
+				else
+				{
+					delayedTasks.remove(i--);
+				}
+			}
+		}
+		runPendingTasks();
+	}
+
+	@Override
+	public void setSlot(int slot, int itemId, int quantity)
+	{
+		setItem(slot, new Item(itemId, itemId == -1 ? 0 : quantity));
+	}
+
+	/**
+	 * Put an item the caller already created in an inventory slot, for callers that must not allocate
+	 */
+	public void setItem(int slot, Item item)
+	{
+		inventory[slot] = item;
+	}
+
+	@Override
+	public void inventoryChanged()
+	{
+		long start = System.nanoTime();
+		plugin.onItemContainerChanged(inventoryEvent);
+		inventoryStats.record(System.nanoTime() - start);
+		runPendingTasks();
+	}
+
+	@Override
+	public void animate(int animationId)
+	{
+		if (lastAnimation != animationId)
+		{
+			lastAnimation = animationId;
+		}
+		playerAnimation = lastAnimation;
+		plugin.onAnimationChanged(animationEvent);
+		playerAnimation = NO_ANIMATION;
+		runPendingTasks();
+	}
+
+	@Override
+	public void expectCrafted(int itemId, int quantity)
+	{
+		RuneType rune = RuneType.fromItemId(itemId);
+		if (rune != null)
+		{
+			expectedCounts[rune.ordinal()] += quantity;
+		}
+	}
+
+	/**
+	 * Replay a scenario and print a report of its cost and results
+	 */
+	public void run(ReplayScenario scenario)
+	{
+		long start = System.nanoTime();
+		scenario.play(this);
+		long elapsed = System.nanoTime() - start;
+
+		double seconds = elapsed / 1e9;
+		System.out.printf("%s%n", scenario.getName());
+		System.out.printf("  %,d ticks (%.1f game hours) in %.3fs: %,.0f ticks/s, %,.0fx real time%n",
+			ticks, ticks * 0.6 / 3600, seconds, ticks / seconds, ticks * 0.6 / seconds);
+		System.out.printf("  %d chat messages%n", chatMessages);
+		print(tickStats);
+		print(inventoryStats);
+		print(gameStateStats);
+
+		long expectedTotal = 0;
+		System.out.printf("  %-14s %12s %12s%n", "rune", "tracked", "crafted");
+		for (int i = 0; i < RuneType.COUNT; i++)
+		{
+			RuneType rune = RuneType.fromOrdinal(i);
+			long tracked = manager.getRuneCount(rune);
+			expectedTotal += expectedCounts[i];
+			System.out.printf("  %-14s %,12d %,12d%s%n", rune.getDisplayName(), tracked, expectedCounts[i],
+				tracked == expectedCounts[i] ? "" : "  <-- miscount");
+		}
+		System.out.printf("  %-14s %,12d %,12d%n", "Total", manager.getTotalRunesCrafted(), expectedTotal);
+	}
+
+	public long getExpectedCount(RuneType rune)
+	{
+		return expectedCounts[rune.ordinal()];
+	}
+
+	private void setGameState(GameState state)
+	{
+		gameState = state;
+		GameStateChanged event = new GameStateChanged();
+		event.setGameState(state);
+
+		long start = System.nanoTime();
+		plugin.onGameStateChanged(event);
+		gameStateStats.record(System.nanoTime() - start);
+		runPendingTasks();
+	}
+
+	private ScheduledFuture<?> schedule(Runnable task, long delayMillis, long periodMillis)
+	{
+		DelayedTask delayed = new DelayedTask(task, time + delayMillis, periodMillis);
+		delayedTasks.add(delayed);
+		return stub(ScheduledFuture.class, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "cancel":
+					delayed.cancelled = true;
+					return true;
+				case "isCancelled":
+					return delayed.cancelled;
+				case "isDone":
+					return delayed.cancelled || !delayedTasks.contains(delayed);
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	/**
+	 * Run the work queued for the executor and client thread, including anything it queues in turn
+	 */
+	private void runPendingTasks()
+	{
+		Runnable task;
+		while ((task = pendingTasks.poll()) != null)
+		{
+			task.run();
+		}
+	}
+
+	private static boolean isInventory(Object container)
+	{
+		return container == InventoryID.INVENTORY
+			|| (container instanceof Integer && (Integer) container == InventoryID.INVENTORY.getId());
+	}
+
+	private static WorldPoint worldPointInRegion(int regionId)
+	{
+		// Middle of the 64x64 region
+		return new WorldPoint(((regionId >> 8) << 6) + 32, ((regionId & 0xFF) << 6) + 32, 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type, InvocationHandler handler)
+	{
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+		{
+			if (method.getDeclaringClass() == Object.class)
+			{
+				switch (method.getName())
+				{
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return type.getSimpleName() + " stub";
+				}
+			}
+			return handler.invoke(proxy, method, args);
+		});
+	}
+
+	private static Object defaultValue(Class<?> type)
+	{
+		if (!type.isPrimitive() || type == void.class)
+		{
+			return null;
+		}
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == double.class)
+		{
+			return 0d;
+		}
+		if (type == float.class)
+		{
+			return 0f;
+		}
+		if (type == char.class)
+		{
+			return (char) 0;
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		return 0;
+	}
+
+	private static void print(LatencyHistogram histogram)
+	{
+		if (histogram.getCount() > 0)
+		{
+			System.out.printf("  %s%n", histogram);
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		// Each replay starts from an empty account
+		if (args.length > 0)
+		{
+			for (String file : args)
+			{
+				new ReplaySimulator(Files.createTempDirectory("gotr-replay")).run(new RecordedScenario(Paths.get(file)));
+			}
+			return;
+		}
+
+		new ReplaySimulator(Files.createTempDirectory("gotr-replay")).run(GeneratedScenarios.session(1, 1));
+		new ReplaySimulator(Files.createTempDirectory("gotr-replay")).run(GeneratedScenarios.session(4, 2));
+		new ReplaySimulator(Files.createTempDirectory("gotr-replay")).run(GeneratedScenarios.session(12, 3));
+		new ReplaySimulator(Files.createTempDirectory("gotr-replay")).run(GeneratedScenarios.sessionWithTrips(4, 4));
+	}
+}
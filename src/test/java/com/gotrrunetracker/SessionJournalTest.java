@@ -0,0 +1,252 @@
+package com.gotrrunetracker;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionJournalTest
+{
+	private static final long START_TIME = 1_700_000_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+
+	// Rune counts of the sessions the journals saved, and the last one's start as the lifetime store keeps it
+	private final List<long[]> savedSessions = new ArrayList<>();
+	private long lastSavedStart = 0;
+	private boolean crashAfterSave = false;
+	private final SessionJournal.SessionStore sessionStore = new SessionJournal.SessionStore()
+	{
+		@Override
+		public boolean isSaved(long sessionStartTime)
+		{
+			return sessionStartTime == lastSavedStart;
+		}
+
+		@Override
+		public void save(long sessionStartTime, long sessionEndTime, long[] runeCounts)
+		{
+			savedSessions.add(runeCounts.clone());
+			lastSavedStart = sessionStartTime;
+			if (crashAfterSave)
+			{
+				throw new IllegalStateException("Client stopped");
+			}
+		}
+	};
+
+	@Before
+	public void setUp()
+	{
+		directory = folder.getRoot().toPath();
+	}
+
+	@Test
+	public void replayStopsAtTheLastFlush()
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		assertFalse(journal.open());
+		GOTRRuneTrackerManager manager = attach(journal);
+
+		manager.addRunes(RuneType.AIR, 200);
+		manager.addRunes(RuneType.FIRE, 150);
+		journal.flush();
+
+		// Queued but never written, as when the client stops between flushes
+		manager.addRunes(RuneType.AIR, 300);
+
+		GOTRRuneTrackerManager restored = reopen();
+		assertEquals(200, restored.getRuneCount(RuneType.AIR));
+		assertEquals(150, restored.getRuneCount(RuneType.FIRE));
+		assertEquals(350, restored.getLocationCount(GOTRLocation.AIR_ALTAR));
+		assertEquals(START_TIME, restored.getSessionStartTime());
+	}
+
+	@Test
+	public void rollsOverIntoNewGenerations() throws IOException
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		GOTRRuneTrackerManager manager = attach(journal);
+
+		// Several times the records one file holds, flushed as often as the queue needs
+		int gains = 200_000;
+		for (int i = 0; i < gains; i++)
+		{
+			manager.addRunes(RuneType.BLOOD, 1);
+			if (i % 1000 == 0)
+			{
+				journal.flush();
+			}
+		}
+		journal.close();
+
+		assertEquals(1, journalFiles().size());
+		assertFalse(journalFiles().get(0).endsWith("session-1.journal"));
+		assertEquals(gains, reopen().getRuneCount(RuneType.BLOOD));
+	}
+
+	@Test
+	public void damagedHeaderStartsANewSession() throws IOException
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		GOTRRuneTrackerManager manager = attach(journal);
+		manager.addRunes(RuneType.AIR, 200);
+		journal.close();
+
+		// A record count no file can hold
+		try (FileChannel file = FileChannel.open(journalFiles().get(0), StandardOpenOption.WRITE))
+		{
+			ByteBuffer count = ByteBuffer.allocate(4);
+			count.putInt(0, Integer.MAX_VALUE);
+			file.write(count, 8);
+		}
+
+		SessionJournal damaged = new SessionJournal(directory, sessionStore);
+		assertFalse(damaged.open());
+		GOTRRuneTrackerManager fresh = attach(damaged);
+		assertEquals(0, fresh.getRuneCount(RuneType.AIR));
+
+		// Still usable afterwards
+		fresh.addRunes(RuneType.WATER, 175);
+		damaged.close();
+		assertEquals(175, reopen().getRuneCount(RuneType.WATER));
+	}
+
+	@Test
+	public void adoptMergesRunesCountedWhileOpening()
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		attach(journal).addRunes(RuneType.AIR, 200);
+		journal.close();
+
+		// The plugin counts from a cleared manager while the journal opens in the background
+		GOTRRuneTrackerManager manager = newManager(START_TIME + 60_000);
+		manager.addRunes(RuneType.AIR, 150);
+		manager.addRunes(RuneType.NATURE, 130);
+
+		SessionJournal reopened = new SessionJournal(directory, sessionStore);
+		assertTrue(reopened.open());
+		reopened.adopt(manager);
+		manager.addListener(reopened);
+
+		assertEquals(350, manager.getRuneCount(RuneType.AIR));
+		assertEquals(130, manager.getRuneCount(RuneType.NATURE));
+		assertEquals(480, manager.getLocationCount(GOTRLocation.AIR_ALTAR));
+		assertEquals(START_TIME, manager.getSessionStartTime());
+
+		// The merged session is what the next open replays
+		reopened.close();
+		GOTRRuneTrackerManager restored = reopen();
+		assertEquals(350, restored.getRuneCount(RuneType.AIR));
+		assertEquals(130, restored.getRuneCount(RuneType.NATURE));
+		assertEquals(START_TIME, restored.getSessionStartTime());
+	}
+
+	@Test
+	public void resetSavesTheSessionBeforeStartingTheNext()
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		GOTRRuneTrackerManager manager = attach(journal);
+		manager.addRunes(RuneType.LAW, 140);
+		manager.reset();
+		assertTrue(savedSessions.isEmpty());
+
+		journal.flush();
+		assertEquals(1, savedSessions.size());
+		assertEquals(140, savedSessions.get(0)[RuneType.LAW.ordinal()]);
+
+		journal.close();
+		assertEquals(0, reopen().getRuneCount(RuneType.LAW));
+		assertEquals(1, savedSessions.size());
+	}
+
+	@Test
+	public void sessionSavedBeforeAStopIsNotContinued()
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		GOTRRuneTrackerManager manager = attach(journal);
+		manager.addRunes(RuneType.LAW, 140);
+		journal.flush();
+		manager.reset();
+
+		// Saved, but stopped before the reset was written
+		crashAfterSave = true;
+		try
+		{
+			journal.flush();
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected, the journal is abandoned as the client would leave it
+		}
+		crashAfterSave = false;
+
+		SessionJournal reopened = new SessionJournal(directory, sessionStore);
+		assertFalse(reopened.open());
+		GOTRRuneTrackerManager restored = newManager(START_TIME + 120_000);
+		reopened.adopt(restored);
+		assertEquals(0, restored.getRuneCount(RuneType.LAW));
+		assertEquals(1, savedSessions.size());
+	}
+
+	private GOTRRuneTrackerManager attach(SessionJournal journal)
+	{
+		GOTRRuneTrackerManager manager = newManager(START_TIME);
+		journal.adopt(manager);
+		manager.addListener(journal);
+		return manager;
+	}
+
+	/**
+	 * Open the journal again as a new client would, and return the session it continues
+	 */
+	private GOTRRuneTrackerManager reopen()
+	{
+		SessionJournal journal = new SessionJournal(directory, sessionStore);
+		journal.open();
+		GOTRRuneTrackerManager manager = newManager(START_TIME + 120_000);
+		journal.adopt(manager);
+		journal.close();
+		return manager;
+	}
+
+	private static GOTRRuneTrackerManager newManager(long sessionStartTime)
+	{
+		GOTRRuneTrackerManager manager = new GOTRRuneTrackerManager();
+		manager.restore(sessionStartTime, new long[RuneType.COUNT], new long[GOTRLocation.COUNT]);
+		manager.setLocation(GOTRLocation.AIR_ALTAR);
+		return manager;
+	}
+
+	private List<Path> journalFiles() throws IOException
+	{
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory, "session-*.journal"))
+		{
+			journals.forEach(files::add);
+		}
+		return files;
+	}
+}
@@ -0,0 +1,143 @@
+package com.gotrrunetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest
+{
+	private static final long TICK_MILLIS = 1000;
+	private static final int SLOTS = 8;
+
+	private final TimerWheel wheel = new TimerWheel(TICK_MILLIS, SLOTS, 0);
+
+	@Test
+	public void firesOnTheFirstAdvanceAfterItsDeadline()
+	{
+		int[] runs = new int[1];
+		TimerWheel.Timer timer = new TimerWheel.Timer(() -> runs[0]++);
+		wheel.schedule(timer, 2500);
+
+		wheel.advance(2000);
+		assertEquals(0, runs[0]);
+
+		wheel.advance(3000);
+		assertEquals(1, runs[0]);
+		assertFalse(timer.isScheduled());
+
+		wheel.advance(4000);
+		assertEquals(1, runs[0]);
+	}
+
+	@Test
+	public void deadlineLapsLaterStaysInItsSlot()
+	{
+		// Shares a slot with tick 4, two laps on
+		long deadline = (2 * SLOTS + 4) * TICK_MILLIS;
+		int[] runs = new int[1];
+		TimerWheel.Timer timer = new TimerWheel.Timer(() -> runs[0]++);
+		wheel.schedule(timer, deadline);
+
+		for (long now = TICK_MILLIS; now < deadline; now += TICK_MILLIS)
+		{
+			wheel.advance(now);
+			assertEquals("fired early at " + now, 0, runs[0]);
+		}
+
+		wheel.advance(deadline);
+		assertEquals(1, runs[0]);
+	}
+
+	@Test
+	public void longGapRunsEveryDueTimerOnce()
+	{
+		int[] runs = new int[3];
+		TimerWheel.Timer near = new TimerWheel.Timer(() -> runs[0]++);
+		TimerWheel.Timer lapsLater = new TimerWheel.Timer(() -> runs[1]++);
+		TimerWheel.Timer notDue = new TimerWheel.Timer(() -> runs[2]++);
+		wheel.schedule(near, 1000);
+		wheel.schedule(lapsLater, 5 * SLOTS * TICK_MILLIS);
+		wheel.schedule(notDue, 20 * SLOTS * TICK_MILLIS);
+
+		// A logout far longer than the wheel
+		wheel.advance(10 * SLOTS * TICK_MILLIS);
+		assertEquals(1, runs[0]);
+		assertEquals(1, runs[1]);
+		assertEquals(0, runs[2]);
+		assertTrue(notDue.isScheduled());
+	}
+
+	@Test
+	public void actionCanRescheduleItsOwnTimer()
+	{
+		int[] runs = new int[1];
+		TimerWheel.Timer[] timer = new TimerWheel.Timer[1];
+		timer[0] = new TimerWheel.Timer(() ->
+		{
+			runs[0]++;
+			wheel.schedule(timer[0], timer[0].getDeadline() + TICK_MILLIS);
+		});
+		wheel.schedule(timer[0], TICK_MILLIS);
+
+		for (long now = TICK_MILLIS; now <= 20 * TICK_MILLIS; now += TICK_MILLIS)
+		{
+			wheel.advance(now);
+		}
+		assertEquals(20, runs[0]);
+
+		// Rescheduled into the past after a gap, it runs once and waits for the next advance
+		wheel.advance(30 * TICK_MILLIS);
+		assertEquals(21, runs[0]);
+		assertTrue(timer[0].isScheduled());
+	}
+
+	@Test
+	public void actionCanCancelAnotherDueTimer()
+	{
+		int[] runs = new int[3];
+		TimerWheel.Timer last = new TimerWheel.Timer(() -> runs[2]++);
+		TimerWheel.Timer cancelled = new TimerWheel.Timer(() -> runs[1]++);
+		TimerWheel.Timer first = new TimerWheel.Timer(() ->
+		{
+			runs[0]++;
+			wheel.cancel(cancelled);
+		});
+
+		// All in one slot, run newest first
+		wheel.schedule(last, 3000);
+		wheel.schedule(cancelled, 3000);
+		wheel.schedule(first, 3000);
+
+		wheel.advance(3000);
+		assertEquals(1, runs[0]);
+		assertEquals(0, runs[1]);
+		assertEquals(1, runs[2]);
+	}
+
+	@Test
+	public void actionCanRescheduleAnotherDueTimer()
+	{
+		int[] runs = new int[3];
+		TimerWheel.Timer last = new TimerWheel.Timer(() -> runs[2]++);
+		TimerWheel.Timer moved = new TimerWheel.Timer(() -> runs[1]++);
+		TimerWheel.Timer first = new TimerWheel.Timer(() ->
+		{
+			runs[0]++;
+			wheel.schedule(moved, 5000);
+		});
+
+		wheel.schedule(last, 3000);
+		wheel.schedule(moved, 3000);
+		wheel.schedule(first, 3000);
+
+		wheel.advance(3000);
+		assertEquals(1, runs[0]);
+		assertEquals(0, runs[1]);
+		assertEquals(1, runs[2]);
+
+		wheel.advance(5000);
+		assertEquals(1, runs[1]);
+	}
+}
@@ -0,0 +1,236 @@
+package com.gotrrunetracker.replay;
+
+import com.gotrrunetracker.GOTRLocation;
+import com.gotrrunetracker.RuneType;
+import net.runelite.api.AnimationID;
+
+import java.util.Random;
+
+/**
+ * Synthetic Guardians of the Rift sessions: mining fragments, crafting essence, taking a portal to an
+ * altar, crafting runes and depositing them, repeated for as many games as fit in the requested time
+ */
+public final class GeneratedScenarios
+{
+	public static final int TICKS_PER_HOUR = 6000;
+	private static final int TICKS_PER_GAME = 1000;
+
+	private static final int GUARDIAN_FRAGMENTS = 26878;
+	private static final int GUARDIAN_ESSENCE = 26879;
+	private static final int UNCHARGED_CELL = 26880;
+	private static final int COLOSSAL_POUCH = 26784;
+
+	// Lumbridge, where the player goes between games on trips outside GOTR
+	private static final int OUTSIDE_REGION = 12850;
+
+	// Inventory layout used by the generated player
+	private static final int FRAGMENT_SLOT = 1;
+	private static final int CELL_SLOT = 2;
+	private static final int RUNE_SLOT = 3;
+	private static final int FIRST_ESSENCE_SLOT = 5;
+	private static final int INVENTORY_SIZE = 28;
+
+	private GeneratedScenarios()
+	{
+	}
+
+	/**
+	 * A session of back to back games lasting the given number of hours
+	 */
+	public static ReplayScenario session(double hours, long seed)
+	{
+		return new ReplayScenario()
+		{
+			@Override
+			public String getName()
+			{
+				return String.format("generated %.1fh session (seed %d)", hours, seed);
+			}
+
+			@Override
+			public void play(ReplayDriver driver)
+			{
+				new SessionGenerator(driver, new Random(seed), (long) (hours * TICKS_PER_HOUR), false).run();
+			}
+		};
+	}
+
+	/**
+	 * A session like {@link #session}, but leaving GOTR after every game for a few minutes, which sends
+	 * the plugin dormant until the player returns
+	 */
+	public static ReplayScenario sessionWithTrips(double hours, long seed)
+	{
+		return new ReplayScenario()
+		{
+			@Override
+			public String getName()
+			{
+				return String.format("generated %.1fh session with trips outside GOTR (seed %d)", hours, seed);
+			}
+
+			@Override
+			public void play(ReplayDriver driver)
+			{
+				new SessionGenerator(driver, new Random(seed), (long) (hours * TICKS_PER_HOUR), true).run();
+			}
+		};
+	}
+
+	private static final class SessionGenerator
+	{
+		private final ReplayDriver driver;
+		private final Random random;
+		private final long tickBudget;
+		private final boolean trips;
+		private long ticks = 0;
+		private int fragments = 0;
+
+		SessionGenerator(ReplayDriver driver, Random random, long tickBudget, boolean trips)
+		{
+			this.driver = driver;
+			this.random = random;
+			this.tickBudget = tickBudget;
+			this.trips = trips;
+		}
+
+		void run()
+		{
+			driver.login(GOTRLocation.TEMPLE_OF_THE_EYE.getRegionId());
+			driver.setSlot(0, COLOSSAL_POUCH, 1);
+			driver.inventoryChanged();
+			tick(2);
+
+			while (ticks < tickBudget)
+			{
+				playGame();
+
+				if (trips)
+				{
+					// Leave to restock, dropping the cells while away
+					driver.changeRegion(OUTSIDE_REGION);
+					tick(100 + random.nextInt(400));
+					driver.setSlot(CELL_SLOT, -1, 0);
+					driver.inventoryChanged();
+					tick(50);
+					driver.changeRegion(GOTRLocation.TEMPLE_OF_THE_EYE.getRegionId());
+				}
+
+				// Wait in the lobby for the next game
+				tick(30 + random.nextInt(30));
+			}
+
+			driver.logout();
+		}
+
+		private void playGame()
+		{
+			long gameEnd = ticks + TICKS_PER_GAME;
+
+			// Mine fragments before the portal opens
+			for (int i = 0; i < 40 && ticks < tickBudget; i++)
+			{
+				fragments += 1 + random.nextInt(3);
+				driver.setSlot(FRAGMENT_SLOT, GUARDIAN_FRAGMENTS, fragments);
+				driver.inventoryChanged();
+				tick(3);
+			}
+
+			while (ticks < gameEnd && ticks < tickBudget)
+			{
+				int essence = craftEssence();
+				if (random.nextInt(4) == 0)
+				{
+					// Pick up a cell on the way to the portal
+					driver.setSlot(CELL_SLOT, UNCHARGED_CELL, 1 + random.nextInt(10));
+					driver.inventoryChanged();
+					tick(1);
+				}
+				craftRunes(essence);
+			}
+		}
+
+		private int craftEssence()
+		{
+			int essence = 0;
+			for (int slot = FIRST_ESSENCE_SLOT; slot < INVENTORY_SIZE && fragments > 0; slot++)
+			{
+				fragments--;
+				essence++;
+				driver.setSlot(slot, GUARDIAN_ESSENCE, 1);
+				driver.setSlot(FRAGMENT_SLOT, fragments > 0 ? GUARDIAN_FRAGMENTS : -1, fragments);
+
+				// The workbench produces a few essence per tick
+				if (slot % 4 == 0)
+				{
+					driver.inventoryChanged();
+					tick(1);
+				}
+			}
+			driver.inventoryChanged();
+			tick(1);
+
+			if (essence == 0)
+			{
+				// Out of fragments, mine some more
+				fragments += 20;
+				driver.setSlot(FRAGMENT_SLOT, GUARDIAN_FRAGMENTS, fragments);
+				driver.inventoryChanged();
+				tick(10);
+			}
+			return essence;
+		}
+
+		private void craftRunes(int essence)
+		{
+			RuneType rune = RuneType.fromOrdinal(random.nextInt(RuneType.COUNT));
+			GOTRLocation altar = altarFor(rune);
+
+			driver.changeRegion(altar.getRegionId());
+			tick(2 + random.nextInt(3));
+
+			int crafted = essence * (rune.ordinal() < 3 ? 2 : 1);
+			for (int slot = FIRST_ESSENCE_SLOT; slot < INVENTORY_SIZE; slot++)
+			{
+				driver.setSlot(slot, -1, 0);
+			}
+			if (crafted > 0)
+			{
+				driver.setSlot(RUNE_SLOT, rune.getItemId(), crafted);
+				driver.expectCrafted(rune.getItemId(), crafted);
+			}
+			driver.inventoryChanged();
+			driver.animate(AnimationID.RUNECRAFTING);
+			tick(2);
+
+			driver.changeRegion(GOTRLocation.TEMPLE_OF_THE_EYE.getRegionId());
+			tick(3 + random.nextInt(3));
+
+			// Deposit the runes into the pool
+			driver.setSlot(RUNE_SLOT, -1, 0);
+			driver.inventoryChanged();
+			tick(2);
+		}
+
+		private void tick(int count)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				driver.tick();
+				ticks++;
+			}
+		}
+
+		private static GOTRLocation altarFor(RuneType rune)
+		{
+			for (GOTRLocation location : GOTRLocation.values())
+			{
+				if (location.getRune() == rune)
+				{
+					return location;
+				}
+			}
+			throw new IllegalArgumentException("No altar for " + rune);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.gotrrunetracker.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A scenario read from a text file, one action per line:
+ * <pre>
+ * login &lt;regionId&gt;
+ * logout
+ * region &lt;regionId&gt;
+ * tick [count]
+ * slot &lt;slot&gt; &lt;itemId&gt; &lt;quantity&gt;
+ * inv
+ * anim &lt;animationId&gt;
+ * craft &lt;itemId&gt; &lt;quantity&gt;
+ * </pre>
+ * Blank lines and lines starting with # are ignored. The file is streamed, so recordings of any length can be replayed.
+ */
+public class RecordedScenario implements ReplayScenario
+{
+	private final Path file;
+
+	public RecordedScenario(Path file)
+	{
+		this.file = file;
+	}
+
+	@Override
+	public String getName()
+	{
+		return "recording " + file.getFileName();
+	}
+
+	@Override
+	public void play(ReplayDriver driver)
+	{
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+
+				try
+				{
+					apply(driver, line.split("\\s+"));
+				}
+				catch (RuntimeException e)
+				{
+					throw new IllegalArgumentException(file + ":" + lineNumber + ": " + line, e);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void apply(ReplayDriver driver, String[] parts)
+	{
+		switch (parts[0])
+		{
+			case "login":
+				driver.login(Integer.parseInt(parts[1]));
+				break;
+			case "logout":
+				driver.logout();
+				break;
+			case "region":
+				driver.changeRegion(Integer.parseInt(parts[1]));
+				break;
+			case "tick":
+				int count = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+				for (int i = 0; i < count; i++)
+				{
+					driver.tick();
+				}
+				break;
+			case "slot":
+				driver.setSlot(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+				break;
+			case "inv":
+				driver.inventoryChanged();
+				break;
+			case "anim":
+				driver.animate(Integer.parseInt(parts[1]));
+				break;
+			case "craft":
+				driver.expectCrafted(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown action " + parts[0]);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.gotrrunetracker.replay;
+
+/**
+ * Game actions a {@link ReplayScenario} can perform against the simulated client
+ */
+public interface ReplayDriver
+{
+	/**
+	 * Log in, placing the player in the given map region
+	 */
+	void login(int regionId);
+
+	/**
+	 * Return to the login screen
+	 */
+	void logout();
+
+	/**
+	 * Load a new scene with the player in the given map region, as when taking a portal
+	 */
+	void changeRegion(int regionId);
+
+	/**
+	 * Advance one game tick
+	 */
+	void tick();
+
+	/**
+	 * Change an inventory slot without notifying the plugin; an empty slot has item id -1
+	 */
+	void setSlot(int slot, int itemId, int quantity);
+
+	/**
+	 * Notify the plugin that the inventory changed
+	 */
+	void inventoryChanged();
+
+	/**
+	 * Play an animation on the player, as when crafting runes at an altar
+	 */
+	void animate(int animationId);
+
+	/**
+	 * Record runes the player actually crafted, to compare against what the plugin tracked
+	 */
+	void expectCrafted(int itemId, int quantity);
+}
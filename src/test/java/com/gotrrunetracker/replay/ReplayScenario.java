@@ -0,0 +1,11 @@
+package com.gotrrunetracker.replay;
+
+/**
+ * A deterministic stream of game events to replay against the plugin
+ */
+public interface ReplayScenario
+{
+	String getName();
+
+	void play(ReplayDriver driver);
+}